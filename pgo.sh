@@ -0,0 +1,30 @@
+#!/bin/sh
+#
+# Copyright © 2019 admin (admin@infrastructurebuilder.org)
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#     http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+# Builds a profile-guided native binary: an instrumented build moves a synthetic tree through the in-memory mock
+# provider, which lists, puts and batch-deletes, and the profile it writes on exit drives the optimized build.
+set -e
+
+mvn -Pnative,native-pgo-instrument clean package -DskipTests
+awk 'BEGIN { for (i = 0; i < 5000; i++) printf "/pgo/source/group%d/key%d\tString\tvalue-%d\n", i % 50, i, i }' \
+  > target/pgo-seed.tsv
+
+rm -f default.iprof
+./target/ssm-cp --mock-provider --mock-seed target/pgo-seed.tsv --concurrency 8 --max-tps 1000000 \
+  --source /pgo/source/ --destination /pgo/moved/ --move
+
+mvn -Pnative,native-pgo package
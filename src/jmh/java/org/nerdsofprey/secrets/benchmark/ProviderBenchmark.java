@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.benchmark;
+
+import ch.qos.logback.classic.Level;
+import org.nerdsofprey.secrets.provider.ProviderOptions;
+import org.nerdsofprey.secrets.provider.aws.AWSProvider;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copy, move and delete through {@link AWSProvider} against a {@link StubSsmClient}, so the numbers reflect the
+ * provider's own overhead plus whatever latency is injected. Each invocation processes the whole tree; the
+ * {@code parameters} counter reports parameters per second alongside the invocation rate. Add {@code -prof gc} for the
+ * allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProviderBenchmark {
+  private static final String SOURCE = "/benchmark/source/";
+  private static final String DESTINATION = "/benchmark/destination/";
+
+  @Param({ "100", "10000", "1000000" })
+  public int treeSize;
+
+  @Param({ "10" })
+  public int pageSize;
+
+  @Param({ "0" })
+  public long latencyMicros;
+
+  @Param({ "1", "16" })
+  public int concurrency;
+
+  private AWSProvider provider;
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Parameters {
+    public long parameters;
+  }
+
+  @Setup(org.openjdk.jmh.annotations.Level.Trial)
+  public void setup() {
+    // per-item logging would otherwise dominate the measurement
+    ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    // the stub never throttles, so the rate ceiling only has to stay out of the way
+    provider = new AWSProvider(new StubSsmClient(SOURCE, treeSize, pageSize, latencyMicros),
+        new ProviderOptions().concurrency(concurrency).maxTps(Double.MAX_VALUE));
+  }
+
+  @Benchmark
+  public boolean copy(Parameters counter) {
+    counter.parameters += treeSize;
+    return provider.performCopy(SOURCE, DESTINATION, true, false);
+  }
+
+  @Benchmark
+  public boolean move(Parameters counter) {
+    counter.parameters += treeSize;
+    return provider.performMove(SOURCE, DESTINATION, true, false);
+  }
+
+  @Benchmark
+  public boolean delete(Parameters counter) {
+    counter.parameters += treeSize;
+    return provider.performDelete(SOURCE, false);
+  }
+}
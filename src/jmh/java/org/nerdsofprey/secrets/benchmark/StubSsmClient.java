@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.benchmark;
+
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.services.ssm.SsmClient;
+import software.amazon.awssdk.services.ssm.model.DeleteParametersRequest;
+import software.amazon.awssdk.services.ssm.model.DeleteParametersResponse;
+import software.amazon.awssdk.services.ssm.model.DescribeParametersRequest;
+import software.amazon.awssdk.services.ssm.model.DescribeParametersResponse;
+import software.amazon.awssdk.services.ssm.model.GetParametersByPathRequest;
+import software.amazon.awssdk.services.ssm.model.GetParametersByPathResponse;
+import software.amazon.awssdk.services.ssm.model.GetParametersRequest;
+import software.amazon.awssdk.services.ssm.model.GetParametersResponse;
+import software.amazon.awssdk.services.ssm.model.Parameter;
+import software.amazon.awssdk.services.ssm.model.ParameterMetadata;
+import software.amazon.awssdk.services.ssm.model.ParameterType;
+import software.amazon.awssdk.services.ssm.model.PutParameterRequest;
+import software.amazon.awssdk.services.ssm.model.PutParameterResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An in-process {@link SsmClient} over a synthetic tree of {@code size} parameters. Parameters are generated from
+ * their index as pages are requested, so a million-parameter tree costs no more heap than a small one, and writes are
+ * acknowledged without being stored. Every call waits out a fixed latency to stand in for the network round trip.
+ * Listing filters are ignored, since the whole tree sits under the root.
+ */
+public class StubSsmClient implements SsmClient {
+  private static final SdkHttpResponse OK = SdkHttpResponse.builder().statusCode(200).build();
+
+  private final String root;
+  private final int size;
+  private final int pageSize;
+  private final long latencyNanos;
+
+  public StubSsmClient(String root, int size, int pageSize, long latencyMicros) {
+    this.root = root;
+    this.size = size;
+    this.pageSize = pageSize;
+    this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+  }
+
+  @Override public GetParametersByPathResponse getParametersByPath(GetParametersByPathRequest request) {
+    pause();
+    int start = request.nextToken() == null ? 0 : Integer.parseInt(request.nextToken());
+    int end = Math.min(size, start + pageSize);
+    List<Parameter> page = new ArrayList<>(end - start);
+    for (int i = start; i < end; i++) {
+      page.add(parameter(i));
+    }
+    GetParametersByPathResponse.Builder response = GetParametersByPathResponse.builder().parameters(page);
+    if (end < size) {
+      response.nextToken(Integer.toString(end));
+    }
+    return (GetParametersByPathResponse) response.sdkHttpResponse(OK).build();
+  }
+
+  @Override public DescribeParametersResponse describeParameters(DescribeParametersRequest request) {
+    pause();
+    int start = request.nextToken() == null ? 0 : Integer.parseInt(request.nextToken());
+    int end = Math.min(size, start + (request.maxResults() == null ? pageSize : request.maxResults()));
+    List<ParameterMetadata> page = new ArrayList<>(end - start);
+    for (int i = start; i < end; i++) {
+      page.add(ParameterMetadata
+          .builder()
+          .name(name(i))
+          .type(ParameterType.SECURE_STRING)
+          .dataType("text")
+          .version(1L)
+          .build());
+    }
+    DescribeParametersResponse.Builder response = DescribeParametersResponse.builder().parameters(page);
+    if (end < size) {
+      response.nextToken(Integer.toString(end));
+    }
+    return (DescribeParametersResponse) response.sdkHttpResponse(OK).build();
+  }
+
+  @Override public GetParametersResponse getParameters(GetParametersRequest request) {
+    pause();
+    List<Parameter> found = new ArrayList<>(request.names().size());
+    List<String> invalid = new ArrayList<>();
+    for (String name : request.names()) {
+      int index = indexOf(name);
+      if (index >= 0) {
+        found.add(parameter(index));
+      } else {
+        invalid.add(name);
+      }
+    }
+    return (GetParametersResponse) GetParametersResponse
+        .builder()
+        .parameters(found)
+        .invalidParameters(invalid)
+        .sdkHttpResponse(OK)
+        .build();
+  }
+
+  @Override public PutParameterResponse putParameter(PutParameterRequest request) {
+    pause();
+    return (PutParameterResponse) PutParameterResponse.builder().version(1L).sdkHttpResponse(OK).build();
+  }
+
+  @Override public DeleteParametersResponse deleteParameters(DeleteParametersRequest request) {
+    pause();
+    return (DeleteParametersResponse) DeleteParametersResponse
+        .builder()
+        .deletedParameters(request.names())
+        .sdkHttpResponse(OK)
+        .build();
+  }
+
+  private String name(int index) {
+    return String.format("%sgroup%d/parameter%d", root, index % 100, index);
+  }
+
+  private Parameter parameter(int index) {
+    return Parameter
+        .builder()
+        .name(name(index))
+        .value("value-" + index)
+        .type(ParameterType.SECURE_STRING)
+        .dataType("text")
+        .version(1L)
+        .build();
+  }
+
+  /**
+   * @return the index the name was generated from, or -1 if it is not in the tree
+   */
+  private int indexOf(String name) {
+    int marker = name.lastIndexOf("/parameter");
+    if (!name.startsWith(root) || marker < 0) {
+      return -1;
+    }
+    try {
+      int index = Integer.parseInt(name.substring(marker + "/parameter".length()));
+      return index >= 0 && index < size && name.equals(name(index)) ? index : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private void pause() {
+    if (latencyNanos > 0) {
+      LockSupport.parkNanos(latencyNanos);
+    }
+  }
+
+  @Override public String serviceName() {
+    return SERVICE_NAME;
+  }
+
+  @Override public void close() {
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.cli;
+
+import com.beust.jcommander.ParameterException;
+import org.nerdsofprey.secrets.provider.AsyncCloudProvider;
+import org.nerdsofprey.secrets.provider.ItemResult;
+import org.nerdsofprey.secrets.provider.ProviderOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Keeps one provider client warm and runs copy, move, delete and sync jobs sent to it over a Unix domain socket, so
+ * repeated invocations skip JVM startup, client construction, credential resolution and TLS handshakes.
+ * <p>
+ * A request is the client's working directory followed by its command line arguments. The reply is a stream of output
+ * lines followed by an exit status; see {@link DaemonClient}.
+ */
+final class Daemon implements AutoCloseable {
+  private static final Logger log = LoggerFactory.getLogger(Daemon.class);
+
+  static final byte LINE = 'L';
+  static final byte EXIT = 'X';
+
+  private final Path socket;
+  private final Function<ProviderOptions, AsyncCloudProvider> providers;
+  private final ServerSocketChannel server;
+  private final ExecutorService jobs;
+
+  /**
+   * @param providers builds the provider for one job; every provider it returns should share the same warm client
+   */
+  Daemon(Path socket, Function<ProviderOptions, AsyncCloudProvider> providers) throws IOException {
+    this.socket = socket;
+    this.providers = providers;
+    removeStaleSocket(socket);
+    this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    try {
+      bindPrivately(server, socket);
+    } catch (IOException e) {
+      server.close();
+      throw e;
+    }
+    AtomicInteger jobCount = new AtomicInteger();
+    this.jobs = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, String.format("job-%d", jobCount.incrementAndGet()));
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Accepts jobs until the daemon is closed, running each on its own thread.
+   */
+  void serve() throws IOException {
+    log.info(String.format("Serving jobs on %s", socket));
+    try {
+      while (server.isOpen()) {
+        SocketChannel channel = server.accept();
+        jobs.execute(() -> handle(channel));
+      }
+    } catch (AsynchronousCloseException e) {
+      log.info(String.format("Stopped serving jobs on %s", socket));
+    }
+  }
+
+  @Override public void close() throws IOException {
+    server.close();
+    jobs.shutdown();
+    Files.deleteIfExists(socket);
+  }
+
+  private void handle(SocketChannel channel) {
+    try (channel;
+        DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+        DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel))) {
+      Path workingDirectory;
+      try {
+        workingDirectory = Paths.get(in.readUTF());
+      } catch (EOFException e) {
+        // a daemon starting on the same path checks whether this one is alive by connecting and hanging up
+        log.debug("A client disconnected without sending a job");
+        return;
+      }
+      String[] args = new String[in.readInt()];
+      for (int i = 0; i < args.length; i++) {
+        args[i] = in.readUTF();
+      }
+      boolean success = run(workingDirectory, args, line -> send(out, line));
+      out.writeByte(EXIT);
+      out.writeInt(success ? 0 : 1);
+    } catch (IOException | UncheckedIOException e) {
+      log.error(String.format("Lost the connection to a client: %s", e.getMessage()));
+    }
+  }
+
+  private boolean run(Path workingDirectory, String[] args, Consumer<String> output) {
+    Executor job;
+    try {
+      job = Executor.parse(args);
+    } catch (ParameterException e) {
+      output.accept(e.getMessage());
+      return false;
+    }
+    String validateMessage = job.validateJob();
+    if (!validateMessage.isBlank()) {
+      output.accept(validateMessage);
+      return false;
+    }
+
+    job.setWorkingDirectory(workingDirectory);
+    log.info(String.format("Running job: %s", String.join(" ", args)));
+    try {
+      ProviderOptions options = job.providerOptions();
+      AsyncCloudProvider provider = providers.apply(options);
+      Relay relay = new Relay(output, options.isQuiet());
+      boolean success;
+      try {
+        success = job.execute(provider, relay);
+      } finally {
+        // the last results may still be on their way; the summary follows them
+        relay.done.join();
+      }
+      provider.getMetrics().summary().lines().forEach(output);
+      output.accept(success ? "The operation completed successfully."
+          : "Errors occurred during the operation; view the daemon log for details.");
+      return success;
+    } catch (RuntimeException e) {
+      log.error("Job failed", e);
+      output.accept(String.format("The job failed: %s", e.getMessage()));
+      return false;
+    }
+  }
+
+  private static void send(DataOutputStream out, String line) {
+    try {
+      out.writeByte(LINE);
+      out.writeUTF(line);
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * A socket file left behind by a daemon that died is removed; one that still answers belongs to a live daemon.
+   */
+  private static void removeStaleSocket(Path socket) throws IOException {
+    if (!Files.exists(socket)) {
+      return;
+    }
+    boolean live;
+    try {
+      SocketChannel.open(UnixDomainSocketAddress.of(socket)).close();
+      live = true;
+    } catch (IOException e) {
+      live = false;
+    }
+    if (live) {
+      throw new IOException(String.format("Another daemon is already serving on %s", socket));
+    }
+    Files.delete(socket);
+  }
+
+  /**
+   * Anyone who can connect can read and write parameters with the daemon's credentials, so only its owner may. The
+   * socket is bound in a directory only the owner can enter, restricted there and only then moved into place, so it is
+   * never reachable with the default permissions.
+   */
+  private static void bindPrivately(ServerSocketChannel server, Path socket) throws IOException {
+    Path directory;
+    try {
+      directory = Files.createTempDirectory(socket.toAbsolutePath().getParent(), socket.getFileName() + ".",
+          PosixFilePermissions.asFileAttribute(EnumSet.of(PosixFilePermission.OWNER_READ,
+              PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE)));
+    } catch (UnsupportedOperationException e) {
+      log.warn(String.format("Unable to restrict access to %s to its owner", socket));
+      server.bind(UnixDomainSocketAddress.of(socket));
+      return;
+    }
+    Path bound = directory.resolve(socket.getFileName());
+    try {
+      server.bind(UnixDomainSocketAddress.of(bound));
+      Files.setPosixFilePermissions(bound, EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE));
+      Files.move(bound, socket, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(bound);
+      Files.delete(directory);
+    }
+  }
+
+  /**
+   * Sends the line for every parameter a job copies, deletes or reads back to the client as it finishes, or only for
+   * those that failed when the job is quiet. A client that reads slowly slows the job down rather than losing lines,
+   * and one that has gone away ends the relay.
+   */
+  private static final class Relay implements Flow.Subscriber<ItemResult> {
+    private final Consumer<String> output;
+    private final boolean failuresOnly;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    private Relay(Consumer<String> output, boolean failuresOnly) {
+      this.output = output;
+      this.failuresOnly = failuresOnly;
+    }
+
+    @Override public void onSubscribe(Flow.Subscription subscription) {
+      subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override public void onNext(ItemResult item) {
+      if (!failuresOnly || !item.isSuccess()) {
+        output.accept(item.toString());
+      }
+    }
+
+    @Override public void onError(Throwable throwable) {
+      done.complete(null);
+    }
+
+    @Override public void onComplete() {
+      done.complete(null);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.cli;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hands one job to a {@link Daemon} and relays what it sends back.
+ */
+final class DaemonClient {
+
+  private DaemonClient() {
+  }
+
+  /**
+   * @param workingDirectory relative paths in the arguments are resolved against this on the daemon's side
+   * @param output receives every line the daemon streams back, as it arrives
+   * @return the job's exit status: 0 when it succeeded
+   */
+  static int submit(Path socket, Path workingDirectory, List<String> args, Consumer<String> output)
+      throws IOException {
+    try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+        DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel))) {
+      out.writeUTF(workingDirectory.toAbsolutePath().toString());
+      out.writeInt(args.size());
+      for (String arg : args) {
+        out.writeUTF(arg);
+      }
+      out.flush();
+
+      while (true) {
+        byte kind = in.readByte();
+        if (kind == Daemon.LINE) {
+          output.accept(in.readUTF());
+        } else if (kind == Daemon.EXIT) {
+          return in.readInt();
+        } else {
+          throw new IOException(String.format("Unexpected reply from the daemon on %s", socket));
+        }
+      }
+    } catch (EOFException e) {
+      throw new IOException(String.format("The daemon on %s closed the connection before the job finished", socket), e);
+    }
+  }
+}
@@ -17,17 +17,51 @@ package org.nerdsofprey.secrets.cli;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
+import org.nerdsofprey.secrets.provider.AsyncCloudProvider;
 import org.nerdsofprey.secrets.provider.CloudProvider;
+import org.nerdsofprey.secrets.provider.Destination;
+import org.nerdsofprey.secrets.provider.ItemResult;
+import org.nerdsofprey.secrets.provider.OperationMetrics;
+import org.nerdsofprey.secrets.provider.OperationReport;
+import org.nerdsofprey.secrets.provider.ParameterFilter;
+import org.nerdsofprey.secrets.provider.ProgressReporter;
+import org.nerdsofprey.secrets.provider.ProviderOptions;
+import org.nerdsofprey.secrets.provider.RewriteRules;
 import org.nerdsofprey.secrets.provider.aws.AWSProvider;
 import org.nerdsofprey.secrets.provider.aws.DependencyFactory;
+import org.nerdsofprey.secrets.provider.aws.Transport;
+import org.nerdsofprey.secrets.provider.mock.InMemorySsmClient;
 import org.nerdsofprey.secrets.provider.mock.MockProvider;
+import org.nerdsofprey.secrets.provider.snapshot.Snapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import software.amazon.awssdk.services.ssm.SsmClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 public class Executor {
   private static final Logger log = LoggerFactory.getLogger(Executor.class);
 
   private static final String PROGRAM_NAME = "ssm-cp";
+  // the idle connections per host the JDK keeps for url-connection unless http.maxConnections says otherwise
+  private static final int JDK_KEEP_ALIVE = 5;
 
   // command line arguments. See the documentation at http://jcommander.org
   @Parameter(names = { "--dry-run",
@@ -35,12 +69,12 @@ public class Executor {
   private boolean dryRun = false;
 
   @Parameter(names = { "--source",
-      "-src" }, required = true, description = "Source SSM path. A single variable should be specified with its full name or a 'directory'/prefix can be specified by including a trailing forward slash (/). '--source /path/to/SPECIFIC_VARIABLE' would choose a single variable as the source, while '--source /path/to/some/prefix/' would specify all variables recursively that begin with the prefix /path/to/some/prefix")
+      "-src" }, description = "Source SSM path. A single variable should be specified with its full name or a 'directory'/prefix can be specified by including a trailing forward slash (/). '--source /path/to/SPECIFIC_VARIABLE' would choose a single variable as the source, while '--source /path/to/some/prefix/' would specify all variables recursively that begin with the prefix /path/to/some/prefix")
   private String source;
 
   @Parameter(names = { "--destination",
-      "-dest" }, description = "Destination SSM path. This should be specified as a prefix (e.g. '/path/to/some/prefix/') -- if you neglect to include a trailing slash one will be provided for you")
-  private String destination;
+      "-dest" }, splitter = NoSplitter.class, description = "Destination SSM path. This should be specified as a prefix (e.g. '/path/to/some/prefix/') -- if you neglect to include a trailing slash one will be provided for you. To copy to another region or account, write the destination as 'region=eu-west-1,profile=prod,role=arn:aws:iam::123456789012:role/name,path=/prefix/', where every key but path is optional. A copy may declare several destinations; the source is read once and written to each")
+  private List<String> destinations = new ArrayList<>();
 
   @Parameter(names = { "--move",
       "-mv" }, description = "Perform a move (copy to the destination and delete the original) rather than a straight copy. Defaults to false")
@@ -49,10 +83,102 @@ public class Executor {
   @Parameter(names = { "--delete", "-rm" }, description = "Perform a deletion on the source path. Defaults to false")
   private boolean delete = false;
 
+  @Parameter(names = {
+      "--sync" }, description = "Copy only the parameters that are missing from the destination or whose value, type or data type differ from it. Defaults to false")
+  private boolean sync = false;
+
+  @Parameter(names = {
+      "--prune" }, description = "With --sync or --watch, also delete destination parameters that do not exist in the source. Defaults to false")
+  private boolean prune = false;
+
+  @Parameter(names = {
+      "--watch" }, description = "Sync the destination once, then keep it in sync: every --watch-interval, list only the names, versions and modification dates under the source and copy just the parameters where either changed. Runs until stopped unless --watch-cycles is set. Defaults to false")
+  private boolean watch = false;
+
+  @Parameter(names = {
+      "--watch-interval" }, description = "With --watch, seconds between one cycle and the next. Defaults to 60")
+  private long watchInterval = 60;
+
+  @Parameter(names = {
+      "--watch-cycles" }, description = "With --watch, exit after this many cycles, counting the first sync. Defaults to 0, which watches until stopped")
+  private long watchCycles = 0;
+
+  @Parameter(names = {
+      "--rules" }, description = "Copy, or with --move move, every source parameter to the name the first matching rule in this file gives it, in one pass. Each line is 'prefix', 'glob' or 'regex', a pattern and a replacement; see the README. Replaces --destination")
+  private String rules;
+
+  @Parameter(names = {
+      "--filter" }, splitter = NoSplitter.class, description = "Only act on source parameters that match this filter, evaluated by SSM where it can be. Written as key=value[,value...] or key:option=value[,value...] with the keys Type, KeyId, Label and Name, where Name also takes the options BeginsWith and Contains, e.g. 'Type=SecureString' or 'Name:BeginsWith=/app/db/'. May be declared several times; a parameter must match every filter")
+  private List<String> filters = new ArrayList<>();
+
+  @Parameter(names = {
+      "--journal" }, description = "Record every completed put and delete in this file so an interrupted run can be picked up again with --resume")
+  private String journal;
+
+  @Parameter(names = {
+      "--resume" }, description = "Continue an interrupted run from the journal it wrote, skipping the puts and deletes it records as completed")
+  private String resume;
+
+  @Parameter(names = {
+      "--stats-file" }, description = "Write call counts, latency histograms and throughput for the run to this file as JSON")
+  private String statsFile;
+
+  @Parameter(names = {
+      "--snapshot-passphrase-env" }, description = "Name of the environment variable holding the passphrase that encrypts a file:// snapshot on export and decrypts it on import. Without it, snapshots are written unencrypted")
+  private String snapshotPassphraseEnv;
+
+  @Parameter(names = {
+      "--plan-out" }, description = "With --dry-run, save the resolved copy, move or delete to this file so --apply can run exactly those operations later without listing the source again. No values are saved")
+  private String planOut;
+
+  @Parameter(names = {
+      "--apply" }, description = "Run the operations a --plan-out dry run saved to this file. Parameters that changed or disappeared since the plan was made are skipped and reported as errors")
+  private String apply;
+
   @Parameter(names = {
       "--mock-provider" }, description = "Use an in-memory mock of a cloud provider rather than AWS. Defaults to false")
   private boolean mock = false;
 
+  @Parameter(names = {
+      "--mock-seed" }, description = "With --mock-provider, load the in-memory store from this file of 'name<TAB>type<TAB>value' lines")
+  private String mockSeed;
+
+  @Parameter(names = {
+      "--mock-latency" }, description = "With --mock-provider, milliseconds every simulated call waits before it is answered. Defaults to 0")
+  private long mockLatency = 0;
+
+  @Parameter(names = {
+      "--mock-throttle-rate" }, description = "With --mock-provider, the fraction of simulated calls (0 to 1) rejected with a throttle. Defaults to 0")
+  private double mockThrottleRate = 0;
+
+  @Parameter(names = {
+      "--mock-failure-rate" }, description = "With --mock-provider, the fraction of simulated calls (0 to 1) that fail outright. Defaults to 0")
+  private double mockFailureRate = 0;
+
+  @Parameter(names = {
+      "--serve" }, description = "Run as a daemon that keeps one warm provider client and accepts jobs from --connect on this Unix domain socket. The daemon's --mock-provider and --mock-* settings apply to every job it runs")
+  private String serve;
+
+  @Parameter(names = {
+      "--connect" }, description = "Hand this invocation to the daemon serving on this Unix domain socket instead of running it here")
+  private String connect;
+
+  @Parameter(names = {
+      "--transport" }, description = "HTTP client for AWS: 'url-connection', or 'apache' for a keep-alive connection pool sized to --concurrency plus --list-concurrency. These are the only two: every call is made synchronously on a worker thread, including those of jobs submitted through the async API, so an async client such as Netty would only add an event loop. A daemon's transport and concurrency settings size the pool every job shares. Defaults to url-connection")
+  private String transport = Transport.URL_CONNECTION.getValue();
+
+  @Parameter(names = {
+      "--verify" }, description = "Once every put is done, read the written parameters back in parallel batches and compare their values, types and data types with the source. Any difference fails the run, and a move then deletes no sources. Defaults to false")
+  private boolean verify = false;
+
+  @Parameter(names = {
+      "--quiet" }, description = "Log only failures and the end-of-run summary, not a line for every parameter copied or deleted. Defaults to false")
+  private boolean quiet = false;
+
+  @Parameter(names = {
+      "--progress" }, description = "Log a single progress line with counts, rate and, where the total is known, time left every this many seconds. Implies --quiet. Defaults to 0, no progress lines")
+  private int progress = 0;
+
   @Parameter(names = "--help", help = true, description = "Display this help message and exit")
   private boolean help;
 
@@ -60,6 +186,21 @@ public class Executor {
       "--overwrite" }, description = "Overwrite the destination parameter if it exists. Defaults to false")
   private boolean overwrite = false;
 
+  @Parameter(names = {
+      "--concurrency" }, description = "Maximum number of put or delete calls to run against the provider at the same time. Defaults to 1")
+  private int concurrency = 1;
+
+  @Parameter(names = {
+      "--list-concurrency" }, description = "Number of calls reading the source at the same time. Above 1, the source's names are listed first and their values fetched in parallel batches, which lists deep trees several times faster. Defaults to 1")
+  private int listConcurrency = 1;
+
+  @Parameter(names = {
+      "--max-tps" }, description = "Upper limit on provider calls per second. The request rate starts at this limit, halves whenever the provider throttles and climbs back while calls succeed. Defaults to 50")
+  private double maxTps = 50;
+
+  // relative paths in the arguments are resolved against this; jobs run by a daemon use their client's
+  private Path workingDirectory = Paths.get("");
+
   public static void main(String[] args) {
     log.info(PROGRAM_NAME);
     Executor exec = new Executor();
@@ -72,48 +213,397 @@ public class Executor {
       cliargs.usage();
     } else {
       String validateMessage = exec.validateParameters();
-      if (validateMessage.isBlank()) {
-        exec.run();
-      } else {
+      if (!validateMessage.isBlank()) {
         throw new RuntimeException(validateMessage);
+      } else if (exec.serve != null) {
+        exec.serve();
+      } else if (exec.connect != null) {
+        exec.submit(args);
+      } else {
+        exec.run();
       }
     }
   }
 
+  /**
+   * Parses the arguments of a job sent to a {@link Daemon}.
+   */
+  static Executor parse(String... args) {
+    Executor exec = new Executor();
+    JCommander.newBuilder().addObject(exec).build().parse(args);
+    return exec;
+  }
+
+  void setWorkingDirectory(Path workingDirectory) {
+    this.workingDirectory = workingDirectory;
+  }
+
   private void run() {
-    CloudProvider provider;
+    if (!execute(providerFactory().apply(providerOptions()))) {
+      throw new RuntimeException("Errors occurred during the operation; view the log for details.");
+    }
+  }
+
+  private void serve() {
+    try {
+      Daemon daemon = new Daemon(resolve(serve), providerFactory());
+      // serve() only returns once the daemon is closed, which on a signal only the shutdown hook can do
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          daemon.close();
+        } catch (IOException e) {
+          log.error(String.format("Unable to remove the socket %s: %s", serve, e.getMessage()));
+        }
+      }, "daemon-shutdown"));
+      try {
+        daemon.serve();
+      } finally {
+        daemon.close();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Unable to serve jobs on %s", serve), e);
+    }
+  }
+
+  private void submit(String[] args) {
+    List<String> job = new ArrayList<>(Arrays.asList(args));
+    int index = job.indexOf("--connect");
+    job.subList(index, index + 2).clear();
+
+    int status;
+    try {
+      status = DaemonClient.submit(resolve(connect), workingDirectory, job, log::info);
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Unable to hand the job to the daemon on %s", connect), e);
+    }
+    if (status != 0) {
+      throw new RuntimeException("Errors occurred during the operation; view the log for details.");
+    }
+  }
+
+  /**
+   * Creates the provider client once; every provider the returned factory builds shares it.
+   */
+  private Function<ProviderOptions, AsyncCloudProvider> providerFactory() {
     if (mock) {
-      provider = new MockProvider();
+      InMemorySsmClient store = new InMemorySsmClient()
+          .latency(mockLatency)
+          .throttleRate(mockThrottleRate)
+          .failureRate(mockFailureRate);
+      if (mockSeed != null) {
+        store.seed(resolve(mockSeed));
+      }
+      return options -> new MockProvider(store, options);
+    }
+    if (Transport.fromValue(transport) == Transport.URL_CONNECTION && System.getProperty("http.maxConnections") == null
+        && concurrency + listConcurrency > JDK_KEEP_ALIVE) {
+      log.warn(String.format(
+          "url-connection keeps only %d idle connections, so most of the %d parallel calls will reconnect; use --transport apache, or run with -Dhttp.maxConnections=%d",
+          JDK_KEEP_ALIVE, concurrency + listConcurrency, concurrency + listConcurrency));
+    }
+    // the source client carries the listing calls as well as the workers' reads and writes
+    SsmClient ssmClient = DependencyFactory.ssmClient(Transport.fromValue(transport), concurrency + listConcurrency);
+    // one client per region, profile and role, however many jobs or paths use it
+    Map<String, SsmClient> targetClients = new ConcurrentHashMap<>();
+    Function<Destination, SsmClient> targetClient = destination -> targetClients.computeIfAbsent(
+        destination.getLocation(),
+        location -> DependencyFactory.ssmClient(Transport.fromValue(transport), concurrency, destination));
+    return options -> new AWSProvider(ssmClient, options, targetClient);
+  }
+
+  /**
+   * Submits the requested operation, waits for it and reports its metrics.
+   *
+   * @return true if it completed without errors
+   */
+  boolean execute(AsyncCloudProvider provider) {
+    return execute(provider, null);
+  }
+
+  /**
+   * @param items receives the result of every copy, delete and read-back as it finishes, or {@code null}
+   */
+  boolean execute(AsyncCloudProvider provider, Flow.Subscriber<? super ItemResult> items) {
+    OperationReport report;
+    if (progress > 0) {
+      ProgressReporter reporter = new ProgressReporter(provider.getMetrics(), Duration.ofSeconds(progress));
+      try {
+        report = await(provider.submit(this::perform, items));
+      } finally {
+        reporter.close();
+      }
     } else {
-      provider = new AWSProvider(DependencyFactory.ssmClient());
+      report = await(provider.submit(this::perform, items));
     }
 
+    reportMetrics(report.getMetrics());
+
+    if (report.isSuccess()) {
+      log.info("The operation completed successfully.");
+    }
+    return report.isSuccess();
+  }
+
+  private static OperationReport await(CompletableFuture<OperationReport> report) {
+    try {
+      return report.join();
+    } catch (CompletionException e) {
+      // rethrow what the operation threw, as if it had run on this thread
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private boolean perform(CloudProvider provider) {
     boolean success = false;
-    if (move) {
-      success = provider.performMove(source, destination, overwrite, dryRun);
+    if (apply != null) {
+      success = provider.performApply(resolve(apply));
+    } else if (rules != null) {
+      success = provider.performRewrite(source, RewriteRules.load(resolve(rules)), overwrite, move, dryRun);
+    } else if (move) {
+      success = provider.performMove(source, destinations.get(0), overwrite, dryRun);
     } else if (delete) {
       success = provider.performDelete(source, dryRun);
+    } else if (watch) {
+      success = provider.performWatch(source, destinations.get(0), prune, Duration.ofSeconds(watchInterval),
+          watchCycles);
+    } else if (sync) {
+      success = provider.performSync(source, destinations.get(0), prune, dryRun);
     } else {
       // copy
-      success = provider.performCopy(source, destination, overwrite, dryRun);
+      List<Destination> targets = parseDestinations();
+      if (targets.size() == 1 && targets.get(0).isLocal()) {
+        success = provider.performCopy(locate(source), locate(targets.get(0).getPath()), overwrite, dryRun);
+      } else {
+        success = provider.performCopy(source, targets, overwrite, dryRun);
+      }
     }
+    return success;
+  }
 
-    if (success) {
-      log.info("The operation completed successfully.");
-    } else {
-      throw new RuntimeException("Errors occurred during the operation; view the log for details.");
+  private void reportMetrics(OperationMetrics metrics) {
+    log.info(metrics.summary());
+    if (statsFile != null) {
+      try {
+        Files.write(resolve(statsFile), metrics.toJson().getBytes(StandardCharsets.UTF_8));
+      } catch (IOException e) {
+        log.error(String.format("Unable to write the stats file %s: %s", statsFile, e.getMessage()));
+      }
     }
   }
 
+  private List<Destination> parseDestinations() {
+    return destinations.stream().map(Destination::parse).collect(Collectors.toList());
+  }
+
+  /**
+   * Resolves a relative {@code file://} snapshot location against the working directory; SSM paths are unchanged.
+   */
+  private String locate(String location) {
+    return Snapshot.isSnapshot(location) ? Snapshot.SCHEME + resolve(Snapshot.pathOf(location).toString()) : location;
+  }
+
+  private Path resolve(String path) {
+    return workingDirectory.resolve(path);
+  }
+
+  ProviderOptions providerOptions() {
+    ProviderOptions options = new ProviderOptions()
+        .concurrency(concurrency)
+        .listConcurrency(listConcurrency)
+        .maxTps(maxTps)
+        .quiet(quiet || progress > 0)
+        .verify(verify);
+    if (resume != null) {
+      options.journal(resolve(resume), true);
+    } else if (journal != null) {
+      options.journal(resolve(journal), false);
+    }
+    if (snapshotPassphraseEnv != null) {
+      options.snapshotPassphrase(System.getenv(snapshotPassphraseEnv).toCharArray());
+    }
+    if (planOut != null) {
+      options.planOut(resolve(planOut));
+    }
+    options.filters(filters.stream().map(ParameterFilter::parse).collect(Collectors.toList()));
+    return options;
+  }
+
   private String validateParameters() {
+    if (serve != null && connect != null) {
+      return "Serve and connect may not be declared together";
+    }
+
+    try {
+      Transport.fromValue(transport);
+    } catch (IllegalArgumentException e) {
+      return e.getMessage();
+    }
+
+    if (serve != null) {
+      return concurrency < 1 ? "Concurrency must be at least 1" : "";
+    }
+
+    return validateOperation();
+  }
+
+  /**
+   * Validates a job handed to a {@link Daemon}.
+   */
+  String validateJob() {
+    if (serve != null || connect != null) {
+      return "A job handed to a daemon may not itself declare serve or connect";
+    }
+
+    return validateOperation();
+  }
+
+  /**
+   * Validates the operation itself, whether it runs here or in a daemon.
+   */
+  private String validateOperation() {
+    if (apply != null) {
+      if (source != null || !destinations.isEmpty() || dryRun || move || delete || sync || planOut != null
+          || rules != null) {
+        return "Apply runs the saved plan as it stands and may not be declared together with source, destination, dry run, move, delete, sync, plan out or rules";
+      }
+    } else if (source == null || source.isBlank()) {
+      return "You must declare a source";
+    }
+
     if (move && delete) {
       return "Move and delete arguments may not be declared together";
     }
 
-    if (!delete && (destination == null || destination.isBlank())) {
+    if (sync && (move || delete)) {
+      return "Sync may not be declared together with move or delete";
+    }
+
+    if (mockLatency < 0 || mockThrottleRate < 0 || mockThrottleRate > 1 || mockFailureRate < 0
+        || mockFailureRate > 1) {
+      return "Mock latency may not be negative, and mock rates must be between 0 and 1";
+    }
+
+    if (journal != null && resume != null) {
+      return "Journal and resume may not be declared together; --resume keeps appending to the journal it reads";
+    }
+
+    if (sync && (journal != null || resume != null)) {
+      return "Sync may not be declared together with journal or resume; rerunning a sync already skips finished work";
+    }
+
+    if (watch && (move || delete || sync || dryRun || journal != null || resume != null || planOut != null
+        || rules != null || apply != null)) {
+      return "Watch keeps a destination in sync and may not be declared together with move, delete, sync, dry run, journal, resume, plan out, rules or apply";
+    }
+
+    if (watch && (watchInterval < 1 || watchCycles < 0)) {
+      return "The watch interval must be at least 1 second, and the watch cycles may not be negative";
+    }
+
+    if (prune && !sync && !watch) {
+      return "Prune may only be declared together with sync or watch";
+    }
+
+    if (!filters.isEmpty() && (sync || watch || apply != null)) {
+      return "Filter may not be declared together with sync, watch or apply";
+    }
+
+    if (verify && (dryRun || delete || (destinations.size() == 1 && Snapshot.isSnapshot(destinations.get(0))))) {
+      return "Verify reads back what was written to SSM and may not be declared together with dry run, delete or a file:// destination";
+    }
+
+    for (String filter : filters) {
+      try {
+        ParameterFilter.parse(filter);
+      } catch (IllegalArgumentException e) {
+        return e.getMessage();
+      }
+    }
+
+    if (apply == null) {
+      String message = validateTargets();
+      if (!message.isEmpty()) {
+        return message;
+      }
+    }
+
+    if (snapshotPassphraseEnv != null && System.getenv(snapshotPassphraseEnv) == null) {
+      return String.format("The environment variable %s named by --snapshot-passphrase-env is not set",
+          snapshotPassphraseEnv);
+    }
+
+    if (concurrency < 1) {
+      return "Concurrency must be at least 1";
+    }
+
+    if (listConcurrency < 1) {
+      return "List concurrency must be at least 1";
+    }
+
+    if (maxTps <= 0) {
+      return "The maximum TPS must be greater than 0";
+    }
+
+    if (progress < 0) {
+      return "The progress interval may not be negative";
+    }
+
+    return "";
+  }
+
+  /**
+   * Validates the source and destinations of an operation that lists its source.
+   */
+  private String validateTargets() {
+    if (rules != null) {
+      if (!destinations.isEmpty() || delete || sync || planOut != null || Snapshot.isSnapshot(source)) {
+        return "Rules replace the destination and may not be declared together with destination, delete, sync, plan out or a file:// source";
+      }
+      try {
+        RewriteRules.load(resolve(rules));
+      } catch (IllegalArgumentException | UncheckedIOException e) {
+        return e.getMessage();
+      }
+      return "";
+    }
+
+    if (!delete && (destinations.isEmpty() || destinations.stream().anyMatch(String::isBlank))) {
       return "For copy or move operations, you must declare a valid destination";
     }
 
+    if (!delete) {
+      List<Destination> parsed;
+      try {
+        parsed = parseDestinations();
+      } catch (IllegalArgumentException e) {
+        return e.getMessage();
+      }
+      if ((move || sync || watch) && (parsed.size() > 1 || !parsed.get(0).isLocal())) {
+        return "Several destinations, or destinations in another region or account, may only be declared for a copy";
+      }
+    }
+
+    boolean snapshot = Snapshot.isSnapshot(source) || destinations.stream().anyMatch(Snapshot::isSnapshot);
+    if (snapshot && (move || delete || sync || watch || destinations.size() > 1)) {
+      return "A file:// snapshot may only be the source or destination of a copy to a single destination";
+    }
+
+    if (Snapshot.isSnapshot(source) && Snapshot.isSnapshot(destinations.get(0))) {
+      return "A file:// snapshot may only be copied to or from SSM";
+    }
+
+    if (planOut != null && !dryRun) {
+      return "Plan out may only be declared together with dry run";
+    }
+
+    if (planOut != null && (sync || snapshot || destinations.size() > 1 || !parseDestinations().stream()
+        .allMatch(Destination::isLocal))) {
+      return "Plan out may only be declared for a copy, move or delete within SSM to at most one destination";
+    }
+
     return "";
   }
 }
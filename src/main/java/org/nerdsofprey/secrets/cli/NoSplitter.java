@@ -0,0 +1,30 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.cli;
+
+import com.beust.jcommander.converters.IParameterSplitter;
+
+import java.util.List;
+
+/**
+ * Keeps each occurrence of a repeatable option whole. JCommander otherwise splits list values on commas, which would
+ * take apart {@code region=..,path=..} destinations.
+ */
+public class NoSplitter implements IParameterSplitter {
+  @Override public List<String> split(String value) {
+    return List.of(value);
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Predicate;
+
+/**
+ * Runs {@link CloudProvider} operations without blocking the caller, so one process can run many at once and see what
+ * happened to each parameter. Every submitted operation gets its own metrics, which also count towards
+ * {@link #getMetrics()}.
+ */
+public interface AsyncCloudProvider {
+
+  /**
+   * Starts the operation on a thread of its own.
+   *
+   * @param operation called once with a provider dedicated to this operation; returns whether it succeeded
+   * @param items receives the result of every copy, delete and read-back as it finishes, then completes when the
+   *     operation does, or {@code null}. A subscriber that falls behind slows the workers down rather than dropping
+   *     results
+   * @return completes with the operation's report, or exceptionally if the operation threw
+   */
+  CompletableFuture<OperationReport> submit(Predicate<CloudProvider> operation,
+      Flow.Subscriber<? super ItemResult> items);
+
+  default CompletableFuture<OperationReport> submit(Predicate<CloudProvider> operation) {
+    return submit(operation, null);
+  }
+
+  /**
+   * A publisher that starts the operation afresh for each subscriber.
+   */
+  default Flow.Publisher<ItemResult> publish(Predicate<CloudProvider> operation) {
+    return subscriber -> submit(operation, subscriber);
+  }
+
+  default CompletableFuture<OperationReport> copy(String source, String destination, boolean overwrite,
+      boolean dryRun) {
+    return submit(provider -> provider.performCopy(source, destination, overwrite, dryRun));
+  }
+
+  default CompletableFuture<OperationReport> copy(String source, List<Destination> destinations, boolean overwrite,
+      boolean dryRun) {
+    return submit(provider -> provider.performCopy(source, destinations, overwrite, dryRun));
+  }
+
+  default CompletableFuture<OperationReport> move(String source, String destination, boolean overwrite,
+      boolean dryRun) {
+    return submit(provider -> provider.performMove(source, destination, overwrite, dryRun));
+  }
+
+  default CompletableFuture<OperationReport> delete(String source, boolean dryRun) {
+    return submit(provider -> provider.performDelete(source, dryRun));
+  }
+
+  default CompletableFuture<OperationReport> sync(String source, String destination, boolean prune, boolean dryRun) {
+    return submit(provider -> provider.performSync(source, destination, prune, dryRun));
+  }
+
+  /**
+   * @return the counters and timings for every operation submitted so far, including those still running
+   */
+  OperationMetrics getMetrics();
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An append-only record of the items an operation has finished, one line per item, so that a rerun can skip them.
+ * Entries are buffered and forced to disk every {@value #SYNC_EVERY} items, when the journal is closed, and when the
+ * JVM shuts down, which covers Ctrl-C.
+ */
+public class CheckpointJournal implements AutoCloseable {
+  private static final int SYNC_EVERY = 100;
+  private static final CheckpointJournal DISABLED = new CheckpointJournal();
+
+  private final Set<String> completed;
+  private final FileChannel channel;
+  private final StringBuilder pending = new StringBuilder();
+  private final Thread shutdownHook;
+  private int pendingCount;
+
+  private CheckpointJournal() {
+    this.completed = Set.of();
+    this.channel = null;
+    this.shutdownHook = null;
+  }
+
+  private CheckpointJournal(Set<String> completed, FileChannel channel) {
+    this.completed = completed;
+    this.channel = channel;
+    this.shutdownHook = new Thread(this::sync, "journal-shutdown");
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+  }
+
+  /**
+   * A journal that remembers nothing and writes nothing.
+   */
+  public static CheckpointJournal disabled() {
+    return DISABLED;
+  }
+
+  /**
+   * @param resume keep the entries already in the file and append to them; otherwise the file is started over
+   */
+  public static CheckpointJournal open(Path path, boolean resume) {
+    try {
+      Set<String> completed = new HashSet<>();
+      FileChannel channel;
+      if (resume) {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        String contents = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        // a line without its newline was cut off mid-write, so it was never completed
+        int end = contents.lastIndexOf('\n') + 1;
+        for (String line : contents.substring(0, end).split("\n")) {
+          if (!line.isEmpty()) {
+            completed.add(line);
+          }
+        }
+        channel.truncate(end);
+        channel.position(end);
+      } else {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+      }
+      return new CheckpointJournal(completed, channel);
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Unable to open the journal %s", path), e);
+    }
+  }
+
+  public static String copied(String source, String target) {
+    return String.format("C %s %s", source, target);
+  }
+
+  public static String deleted(String name) {
+    return String.format("D %s", name);
+  }
+
+  public boolean isDone(String entry) {
+    return completed.contains(entry);
+  }
+
+  public int size() {
+    return completed.size();
+  }
+
+  public synchronized void record(String entry) {
+    if (channel == null) {
+      return;
+    }
+    pending.append(entry).append('\n');
+    if (++pendingCount >= SYNC_EVERY) {
+      sync();
+    }
+  }
+
+  private synchronized void sync() {
+    if (pendingCount == 0) {
+      return;
+    }
+    try {
+      ByteBuffer buffer = StandardCharsets.UTF_8.encode(pending.toString());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+      pending.setLength(0);
+      pendingCount = 0;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to write to the journal", e);
+    }
+  }
+
+  @Override public void close() {
+    if (channel == null) {
+      return;
+    }
+    try {
+      sync();
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to close the journal", e);
+    } finally {
+      try {
+        Runtime.getRuntime().removeShutdownHook(shutdownHook);
+      } catch (IllegalStateException e) {
+        // already shutting down, in which case the hook is the one closing us
+      }
+    }
+  }
+}
@@ -15,12 +15,60 @@
  */
 package org.nerdsofprey.secrets.provider;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
 public interface CloudProvider {
+  /**
+   * Either the source or the destination may be a {@code file://} snapshot instead of a path, to export a tree to a
+   * file or restore one from it.
+   */
   boolean performCopy(String source, String destination, boolean overwrite, boolean dryRun);
 
+  /**
+   * Reads the source once and copies every parameter to each of the destinations, accounting for errors separately
+   * per destination.
+   */
+  boolean performCopy(String source, List<Destination> destinations, boolean overwrite, boolean dryRun);
+
   boolean performDelete(String source, boolean dryRun);
 
   boolean performMove(String source, String destination, boolean overwrite, boolean dryRun);
+
+  /**
+   * Copies only the source parameters that are missing from the destination or differ from it in value, type or data
+   * type.
+   *
+   * @param prune also delete destination parameters that have no counterpart in the source
+   */
+  boolean performSync(String source, String destination, boolean prune, boolean dryRun);
+
+  /**
+   * Brings the destination level with the source as {@link #performSync} does, then keeps it there: every interval it
+   * lists only the names and versions under the source, and copies just the parameters whose version moved since the
+   * last cycle.
+   *
+   * @param prune also delete destination parameters whose source has gone
+   * @param cycles how many cycles to run, counting the first sync, before returning; 0 to run until interrupted
+   * @return true if every cycle completed without errors
+   */
+  boolean performWatch(String source, String destination, boolean prune, Duration interval, long cycles);
+
+  /**
+   * Lists the source once and copies, or moves, every parameter to the name the mapper gives it. Nothing is written if
+   * two parameters map to the same name, or one maps onto a parameter the run also reads.
+   */
+  boolean performRewrite(String source, PathMapper mapper, boolean overwrite, boolean move, boolean dryRun);
+
+  /**
+   * Runs exactly the operations a dry run saved to a plan file, without listing the source again. Parameters whose
+   * version or value changed since the plan was made are left alone and reported as errors.
+   */
+  boolean performApply(Path plan);
+
+  /**
+   * @return the counters and timings for every operation this provider has performed so far
+   */
+  OperationMetrics getMetrics();
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Where a copy writes to: a path prefix, optionally in another region or account. Written either as a bare path, or as
+ * comma-separated {@code key=value} pairs such as
+ * {@code region=eu-west-1,role=arn:aws:iam::123456789012:role/ssm-cp,path=/app/}, where the keys are {@code region},
+ * {@code profile}, {@code role} and {@code path}.
+ */
+public final class Destination {
+  private final String region;
+  private final String profile;
+  private final String role;
+  private final String path;
+
+  private Destination(String region, String profile, String role, String path) {
+    this.region = region;
+    this.profile = profile;
+    this.role = role;
+    this.path = path;
+  }
+
+  /**
+   * A destination reached with the same client the source is read with.
+   */
+  public static Destination of(String path) {
+    return new Destination(null, null, null, path);
+  }
+
+  /**
+   * @throws IllegalArgumentException if the destination has an unknown key or no path
+   */
+  public static Destination parse(String spec) {
+    if (!spec.contains("=")) {
+      return of(spec);
+    }
+
+    String region = null;
+    String profile = null;
+    String role = null;
+    String path = null;
+    for (String pair : spec.split(",")) {
+      int equals = pair.indexOf('=');
+      String key = equals < 0 ? pair : pair.substring(0, equals).trim();
+      String value = equals < 0 ? "" : pair.substring(equals + 1).trim();
+      if (value.isEmpty()) {
+        throw new IllegalArgumentException(String.format("The destination '%s' has no value for '%s'", spec, key));
+      }
+      switch (key) {
+        case "region":
+          region = value;
+          break;
+        case "profile":
+          profile = value;
+          break;
+        case "role":
+          role = value;
+          break;
+        case "path":
+          path = value;
+          break;
+        default:
+          throw new IllegalArgumentException(String.format(
+              "The destination '%s' has an unknown key '%s'; expected region, profile, role or path", spec, key));
+      }
+    }
+    if (path == null) {
+      throw new IllegalArgumentException(String.format("The destination '%s' has no path", spec));
+    }
+    return new Destination(region, profile, role, path);
+  }
+
+  public String getRegion() {
+    return region;
+  }
+
+  public String getProfile() {
+    return profile;
+  }
+
+  public String getRole() {
+    return role;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * @return true if the destination is in the same region and account as the source
+   */
+  public boolean isLocal() {
+    return region == null && profile == null && role == null;
+  }
+
+  /**
+   * @return the region, profile and role as {@code key=value} pairs, or an empty string for a local destination
+   */
+  public String getLocation() {
+    List<String> pairs = new ArrayList<>(3);
+    if (region != null) {
+      pairs.add("region=" + region);
+    }
+    if (profile != null) {
+      pairs.add("profile=" + profile);
+    }
+    if (role != null) {
+      pairs.add("role=" + role);
+    }
+    return String.join(",", pairs);
+  }
+
+  /**
+   * @return the name prefixed with the location, so that the same name in different destinations stays distinct
+   */
+  public String qualify(String name) {
+    return isLocal() ? name : String.format("%s:%s", getLocation(), name);
+  }
+
+  @Override public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof Destination)) {
+      return false;
+    }
+    Destination destination = (Destination) other;
+    return Objects.equals(region, destination.region) && Objects.equals(profile, destination.profile)
+        && Objects.equals(role, destination.role) && Objects.equals(path, destination.path);
+  }
+
+  @Override public int hashCode() {
+    return Objects.hash(region, profile, role, path);
+  }
+
+  @Override public String toString() {
+    return isLocal() ? path : String.format("%s,path=%s", getLocation(), path);
+  }
+}
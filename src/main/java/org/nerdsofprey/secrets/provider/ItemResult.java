@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+/**
+ * The outcome of one copy, delete or read-back of a single parameter. Dry runs produce none.
+ */
+public final class ItemResult {
+
+  /**
+   * What was done to the parameter.
+   */
+  public enum Action {
+    COPY, DELETE, VERIFY
+  }
+
+  private final Action action;
+  private final String source;
+  private final String target;
+  private final String error;
+
+  private ItemResult(Action action, String source, String target, String error) {
+    this.action = action;
+    this.source = source;
+    this.target = target;
+    this.error = error;
+  }
+
+  /**
+   * @param target the name written or read back, or {@code null} for a delete
+   */
+  public static ItemResult succeeded(Action action, String source, String target) {
+    return new ItemResult(action, source, target, null);
+  }
+
+  /**
+   * @param target the name written or read back, or {@code null} for a delete
+   * @param error why it failed, as logged
+   */
+  public static ItemResult failed(Action action, String source, String target, String error) {
+    return new ItemResult(action, source, target, error);
+  }
+
+  public Action getAction() {
+    return action;
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  public String getTarget() {
+    return target;
+  }
+
+  /**
+   * @return why the item failed, or {@code null} if it succeeded
+   */
+  public String getError() {
+    return error;
+  }
+
+  public boolean isSuccess() {
+    return error == null;
+  }
+
+  @Override public String toString() {
+    String item = target == null ? String.format("%s '%s'", action, source)
+        : String.format("%s '%s' -> '%s'", action, source, target);
+    return error == null ? item : String.format("%s failed: %s", item, error);
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe counters and latency histograms for everything a provider does, from the moment it is created. Latencies
+ * go into power-of-two microsecond buckets, so recording is a couple of atomic increments and percentiles are accurate
+ * to within a factor of two. Metrics created with a parent record everything into it as well, so one operation can be
+ * measured on its own while the provider keeps its running totals.
+ */
+public class OperationMetrics {
+  private static final int BUCKETS = 32;
+  // lines up the per-call lines of the summary under the longest call name
+  private static final int CALL_WIDTH = Arrays.stream(Call.values()).mapToInt(call -> call.name().length()).max()
+      .orElse(0);
+
+  /**
+   * The kinds of provider call that are timed.
+   */
+  public enum Call {
+    LIST, DESCRIBE, GET, PUT, DELETE
+  }
+
+  private final long startNanos = System.nanoTime();
+  private final Map<Call, CallStats> calls = new EnumMap<>(Call.class);
+  private final LongAdder throttles = new LongAdder();
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder bytesRead = new LongAdder();
+  private final LongAdder bytesWritten = new LongAdder();
+  private final LongAdder copied = new LongAdder();
+  private final LongAdder deleted = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder expected = new LongAdder();
+  private final OperationMetrics parent;
+
+  public OperationMetrics() {
+    this(null);
+  }
+
+  /**
+   * @param parent also receives everything recorded here, or {@code null}
+   */
+  public OperationMetrics(OperationMetrics parent) {
+    this.parent = parent;
+    for (Call call : Call.values()) {
+      calls.put(call, new CallStats());
+    }
+  }
+
+  public void recordCall(Call call, long nanos, boolean success) {
+    calls.get(call).record(nanos, success);
+    if (parent != null) {
+      parent.recordCall(call, nanos, success);
+    }
+  }
+
+  public void recordThrottle() {
+    throttles.increment();
+    if (parent != null) {
+      parent.recordThrottle();
+    }
+  }
+
+  public void recordRetry() {
+    retries.increment();
+    if (parent != null) {
+      parent.recordRetry();
+    }
+  }
+
+  public void recordBytesRead(long bytes) {
+    bytesRead.add(bytes);
+    if (parent != null) {
+      parent.recordBytesRead(bytes);
+    }
+  }
+
+  public void recordBytesWritten(long bytes) {
+    bytesWritten.add(bytes);
+    if (parent != null) {
+      parent.recordBytesWritten(bytes);
+    }
+  }
+
+  public void recordCopied() {
+    copied.increment();
+    if (parent != null) {
+      parent.recordCopied();
+    }
+  }
+
+  public void recordDeleted() {
+    deleted.increment();
+    if (parent != null) {
+      parent.recordDeleted();
+    }
+  }
+
+  public void recordFailed() {
+    failed.increment();
+    if (parent != null) {
+      parent.recordFailed();
+    }
+  }
+
+  /**
+   * Adds to the number of copies and deletes the run is known to be making, for when it is known up front.
+   */
+  public void expect(long items) {
+    expected.add(items);
+    if (parent != null) {
+      parent.expect(items);
+    }
+  }
+
+  public long getCalls(Call call) {
+    return calls.get(call).count.sum();
+  }
+
+  public long getThrottles() {
+    return throttles.sum();
+  }
+
+  public long getCopied() {
+    return copied.sum();
+  }
+
+  public long getDeleted() {
+    return deleted.sum();
+  }
+
+  public long getFailed() {
+    return failed.sum();
+  }
+
+  /**
+   * @return the copies and deletes the run is known to be making, or 0 if that is not known
+   */
+  public long getExpected() {
+    return expected.sum();
+  }
+
+  /**
+   * @return the copies and deletes completed per second since the provider was created
+   */
+  public double itemsPerSecond() {
+    double seconds = elapsedNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+    return seconds > 0 ? (copied.sum() + deleted.sum()) / seconds : 0;
+  }
+
+  /**
+   * A few human-readable lines for the end of a run.
+   */
+  public String summary() {
+    StringBuilder summary = new StringBuilder(String.format(Locale.ROOT,
+        "Copied %d, deleted %d, failed %d in %.1f s (%.1f items/s); %d throttles, %d retries; %d bytes read, %d bytes written",
+        copied.sum(), deleted.sum(), failed.sum(), elapsedNanos() / 1e9, itemsPerSecond(), throttles.sum(),
+        retries.sum(), bytesRead.sum(), bytesWritten.sum()));
+    calls.forEach((call, stats) -> {
+      if (stats.count.sum() > 0) {
+        summary.append(String.format(Locale.ROOT,
+            "%n  %-" + CALL_WIDTH + "s %6d calls, %d errors, mean %.1f ms, p50 <= %.1f ms, p99 <= %.1f ms, max %.1f ms",
+            call, stats.count.sum(), stats.errors.sum(), stats.meanMillis(), stats.percentileMillis(0.5),
+            stats.percentileMillis(0.99), stats.maxNanos.doubleValue() / 1e6));
+      }
+    });
+    return summary.toString();
+  }
+
+  /**
+   * The same figures as {@link #summary()}, plus the raw histograms, as a JSON document.
+   */
+  public String toJson() {
+    StringBuilder json = new StringBuilder("{\n");
+    json.append(String.format(Locale.ROOT, "  \"elapsedMillis\": %d,%n",
+        TimeUnit.NANOSECONDS.toMillis(elapsedNanos())));
+    json.append(String.format(Locale.ROOT, "  \"itemsPerSecond\": %.3f,%n", itemsPerSecond()));
+    json.append(String.format(Locale.ROOT, "  \"copied\": %d,%n", copied.sum()));
+    json.append(String.format(Locale.ROOT, "  \"deleted\": %d,%n", deleted.sum()));
+    json.append(String.format(Locale.ROOT, "  \"failed\": %d,%n", failed.sum()));
+    json.append(String.format(Locale.ROOT, "  \"throttles\": %d,%n", throttles.sum()));
+    json.append(String.format(Locale.ROOT, "  \"retries\": %d,%n", retries.sum()));
+    json.append(String.format(Locale.ROOT, "  \"bytesRead\": %d,%n", bytesRead.sum()));
+    json.append(String.format(Locale.ROOT, "  \"bytesWritten\": %d,%n", bytesWritten.sum()));
+    json.append("  \"calls\": {");
+    String separator = "\n";
+    for (Map.Entry<Call, CallStats> entry : calls.entrySet()) {
+      CallStats stats = entry.getValue();
+      json.append(separator).append(String.format(Locale.ROOT,
+          "    \"%s\": {\"count\": %d, \"errors\": %d, \"meanMillis\": %.3f, \"p50Millis\": %.3f, \"p90Millis\": %.3f, \"p99Millis\": %.3f, \"maxMillis\": %.3f, \"histogram\": [%s]}",
+          entry.getKey().name().toLowerCase(Locale.ROOT), stats.count.sum(), stats.errors.sum(), stats.meanMillis(),
+          stats.percentileMillis(0.5), stats.percentileMillis(0.9), stats.percentileMillis(0.99),
+          stats.maxNanos.doubleValue() / 1e6, stats.histogramJson()));
+      separator = ",\n";
+    }
+    json.append("\n  }\n}\n");
+    return json.toString();
+  }
+
+  private long elapsedNanos() {
+    return System.nanoTime() - startNanos;
+  }
+
+  private static final class CallStats {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    // bucket i counts latencies below 2^(i+1) microseconds
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    private void record(long nanos, boolean success) {
+      count.increment();
+      if (!success) {
+        errors.increment();
+      }
+      totalNanos.add(nanos);
+      maxNanos.accumulateAndGet(nanos, Math::max);
+      long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos));
+      histogram.incrementAndGet(Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros)));
+    }
+
+    private double meanMillis() {
+      long calls = count.sum();
+      return calls == 0 ? 0 : totalNanos.sum() / 1e6 / calls;
+    }
+
+    /**
+     * @return the upper bound of the bucket holding the given percentile
+     */
+    private double percentileMillis(double percentile) {
+      long calls = count.sum();
+      if (calls == 0) {
+        return 0;
+      }
+      long target = (long) Math.ceil(calls * percentile);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += histogram.get(i);
+        if (seen >= target) {
+          return upperBoundMicros(i) / 1e3;
+        }
+      }
+      return upperBoundMicros(BUCKETS - 1) / 1e3;
+    }
+
+    private String histogramJson() {
+      StringBuilder buckets = new StringBuilder();
+      for (int i = 0; i < BUCKETS; i++) {
+        long bucket = histogram.get(i);
+        if (bucket > 0) {
+          if (buckets.length() > 0) {
+            buckets.append(", ");
+          }
+          buckets.append(String.format(Locale.ROOT, "{\"ltMicros\": %d, \"count\": %d}", upperBoundMicros(i), bucket));
+        }
+      }
+      return buckets.toString();
+    }
+
+    private static long upperBoundMicros(int bucket) {
+      return 1L << (bucket + 1);
+    }
+  }
+}
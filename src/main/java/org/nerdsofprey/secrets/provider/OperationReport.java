@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * What one operation submitted to an {@link AsyncCloudProvider} did: whether it succeeded, its own metrics, and every
+ * item that failed.
+ */
+public final class OperationReport {
+  private final boolean success;
+  private final OperationMetrics metrics;
+  private final List<ItemResult> failures;
+  private final Duration elapsed;
+
+  public OperationReport(boolean success, OperationMetrics metrics, List<ItemResult> failures, Duration elapsed) {
+    this.success = success;
+    this.metrics = metrics;
+    this.failures = List.copyOf(failures);
+    this.elapsed = elapsed;
+  }
+
+  /**
+   * @return true if the operation completed without errors; a failed listing can make this false with no failed items
+   */
+  public boolean isSuccess() {
+    return success;
+  }
+
+  /**
+   * @return the counters and timings of this operation alone
+   */
+  public OperationMetrics getMetrics() {
+    return metrics;
+  }
+
+  public long getCopied() {
+    return metrics.getCopied();
+  }
+
+  public long getDeleted() {
+    return metrics.getDeleted();
+  }
+
+  /**
+   * @return every copy, delete and read-back that failed, in the order they finished
+   */
+  public List<ItemResult> getFailures() {
+    return failures;
+  }
+
+  public Duration getElapsed() {
+    return elapsed;
+  }
+}
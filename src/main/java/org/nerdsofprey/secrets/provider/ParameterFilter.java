@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Narrows a listing to the parameters that match, so the provider can leave the rest on the server. Written as
+ * {@code key=value[,value...]} or {@code key:option=value[,value...]}, for example {@code Type=SecureString},
+ * {@code Label=prod} or {@code Name:BeginsWith=/app/db/}. A parameter matches a filter if it matches any of its values.
+ */
+public final class ParameterFilter {
+  public static final String TYPE = "Type";
+  public static final String KEY_ID = "KeyId";
+  public static final String LABEL = "Label";
+  public static final String NAME = "Name";
+
+  public static final String EQUALS = "Equals";
+  public static final String BEGINS_WITH = "BeginsWith";
+  public static final String CONTAINS = "Contains";
+
+  private static final List<String> KEYS = List.of(TYPE, KEY_ID, LABEL, NAME);
+  private static final List<String> NAME_OPTIONS = List.of(EQUALS, BEGINS_WITH, CONTAINS);
+
+  private final String key;
+  private final String option;
+  private final List<String> values;
+
+  private ParameterFilter(String key, String option, List<String> values) {
+    this.key = key;
+    this.option = option;
+    this.values = values;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the filter has an unknown key or option, or no values
+   */
+  public static ParameterFilter parse(String spec) {
+    int equals = spec.indexOf('=');
+    if (equals < 0) {
+      throw new IllegalArgumentException(String.format("The filter '%s' should be written as key=value", spec));
+    }
+    String[] keyAndOption = spec.substring(0, equals).split(":", 2);
+    String key = canonical(keyAndOption[0].trim(), KEYS, spec, "key");
+    String option = keyAndOption.length == 1 ? EQUALS
+        : canonical(keyAndOption[1].trim(), key.equals(NAME) ? NAME_OPTIONS : List.of(EQUALS), spec, "option");
+    List<String> values = Arrays
+        .stream(spec.substring(equals + 1).split(","))
+        .map(String::trim)
+        .filter(value -> !value.isEmpty())
+        .collect(Collectors.toList());
+    if (values.isEmpty()) {
+      throw new IllegalArgumentException(String.format("The filter '%s' has no value", spec));
+    }
+    return new ParameterFilter(key, option, values);
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public String getOption() {
+    return option;
+  }
+
+  public List<String> getValues() {
+    return values;
+  }
+
+  /**
+   * @return true if a {@link #NAME} filter accepts the name
+   */
+  public boolean matchesName(String name) {
+    switch (option) {
+      case BEGINS_WITH:
+        return values.stream().anyMatch(name::startsWith);
+      case CONTAINS:
+        return values.stream().anyMatch(name::contains);
+      default:
+        return values.contains(name);
+    }
+  }
+
+  @Override public String toString() {
+    return String.format("%s:%s=%s", key, option, String.join(",", values));
+  }
+
+  private static String canonical(String value, List<String> accepted, String spec, String what) {
+    return accepted
+        .stream()
+        .filter(candidate -> candidate.toLowerCase(Locale.ROOT).equals(value.toLowerCase(Locale.ROOT)))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException(
+            String.format("The filter '%s' has an unknown %s '%s'; expected one of %s", spec, what, value,
+                String.join(", ", accepted))));
+  }
+}
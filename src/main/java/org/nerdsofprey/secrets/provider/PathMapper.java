@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+/**
+ * Decides the name a source parameter is written to.
+ */
+@FunctionalInterface
+public interface PathMapper {
+
+  /**
+   * @return the destination name, or {@code null} if the parameter is not to be written
+   */
+  String map(String name);
+
+  /**
+   * Moves names from under one prefix to under another. Only a leading match is replaced, so a name that repeats the
+   * prefix further along keeps the repetition.
+   */
+  static PathMapper prefix(String from, String to) {
+    return name -> {
+      String rest = name.startsWith(from) ? name.substring(from.length()) : name;
+      if (to.endsWith("/") && rest.startsWith("/")) {
+        rest = rest.substring(1);
+      }
+      return to + rest;
+    };
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs one line of progress per interval from a provider's metrics, in place of a line per parameter. The line is
+ * built on a background thread, so the workers only pay for the counters they already update.
+ */
+public class ProgressReporter implements AutoCloseable {
+  private final static Logger log = LoggerFactory.getLogger(ProgressReporter.class);
+
+  private final OperationMetrics metrics;
+  private final ScheduledExecutorService scheduler;
+  private long lastDone;
+  private long lastNanos = System.nanoTime();
+
+  public ProgressReporter(OperationMetrics metrics, Duration interval) {
+    if (interval.isNegative() || interval.isZero()) {
+      throw new IllegalArgumentException("The progress interval must be positive");
+    }
+    this.metrics = metrics;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "progress");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long millis = interval.toMillis();
+    scheduler.scheduleAtFixedRate(this::report, millis, millis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * The progress line for the metrics as they stand, with the rate since the previous line.
+   */
+  synchronized String progress() {
+    long now = System.nanoTime();
+    long done = metrics.getCopied() + metrics.getDeleted();
+    double seconds = (now - lastNanos) / 1e9;
+    double rate = seconds > 0 ? (done - lastDone) / seconds : 0;
+    lastDone = done;
+    lastNanos = now;
+
+    StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "Copied %d, deleted %d, failed %d (%.1f items/s)",
+        metrics.getCopied(), metrics.getDeleted(), metrics.getFailed(), rate));
+    long expected = metrics.getExpected();
+    if (expected > 0) {
+      long remaining = Math.max(0, expected - done - metrics.getFailed());
+      line.append(String.format(Locale.ROOT, "; %d of %d", done, expected));
+      if (rate > 0) {
+        line.append(String.format(Locale.ROOT, ", about %d s left", (long) Math.ceil(remaining / rate)));
+      }
+    }
+    return line.toString();
+  }
+
+  private void report() {
+    log.info(progress());
+  }
+
+  @Override public void close() {
+    scheduler.shutdownNow();
+  }
+}
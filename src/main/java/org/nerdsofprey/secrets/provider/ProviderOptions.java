@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Execution settings shared by every operation a {@link CloudProvider} performs.
+ */
+public class ProviderOptions {
+  private int concurrency = 1;
+  private int listConcurrency = 1;
+  private double maxTps = 50;
+  private Path journal;
+  private boolean resume;
+  private char[] snapshotPassphrase;
+  private Path planOut;
+  private List<ParameterFilter> filters = List.of();
+  private boolean quiet;
+  private boolean verify;
+
+  /**
+   * @param concurrency the maximum number of provider calls in flight at once
+   */
+  public ProviderOptions concurrency(int concurrency) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("Concurrency must be at least 1");
+    }
+    this.concurrency = concurrency;
+    return this;
+  }
+
+  /**
+   * @param listConcurrency the number of calls reading the source at once; above 1, a source listing fetches values
+   *     in parallel batches by name instead of paging through the path in sequence
+   */
+  public ProviderOptions listConcurrency(int listConcurrency) {
+    if (listConcurrency < 1) {
+      throw new IllegalArgumentException("List concurrency must be at least 1");
+    }
+    this.listConcurrency = listConcurrency;
+    return this;
+  }
+
+  /**
+   * @param maxTps the ceiling, in calls per second, that the adaptive rate control may climb to
+   */
+  public ProviderOptions maxTps(double maxTps) {
+    if (maxTps <= 0) {
+      throw new IllegalArgumentException("The maximum TPS must be greater than 0");
+    }
+    this.maxTps = maxTps;
+    return this;
+  }
+
+  /**
+   * @param journal the file every completed item is recorded in, or {@code null} to keep no journal
+   * @param resume skip the items already recorded in the journal instead of starting it over
+   */
+  public ProviderOptions journal(Path journal, boolean resume) {
+    this.journal = journal;
+    this.resume = resume;
+    return this;
+  }
+
+  /**
+   * @param snapshotPassphrase encrypts exported snapshots and decrypts imported ones, or {@code null} for none
+   */
+  public ProviderOptions snapshotPassphrase(char[] snapshotPassphrase) {
+    this.snapshotPassphrase = snapshotPassphrase;
+    return this;
+  }
+
+  /**
+   * @param planOut the file a dry run saves its operations to, for a later {@link CloudProvider#performApply(Path)}
+   */
+  public ProviderOptions planOut(Path planOut) {
+    this.planOut = planOut;
+    return this;
+  }
+
+  /**
+   * @param filters every listing of the source is narrowed to the parameters that match all of these
+   */
+  public ProviderOptions filters(List<ParameterFilter> filters) {
+    this.filters = List.copyOf(filters);
+    return this;
+  }
+
+  /**
+   * @param quiet log only failures and totals, not a line for every parameter copied or deleted
+   */
+  public ProviderOptions quiet(boolean quiet) {
+    this.quiet = quiet;
+    return this;
+  }
+
+  /**
+   * @param verify read every written parameter back once the puts are done and compare it with its source; a move
+   *     deletes no sources unless all of them match
+   */
+  public ProviderOptions verify(boolean verify) {
+    this.verify = verify;
+    return this;
+  }
+
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  public int getListConcurrency() {
+    return listConcurrency;
+  }
+
+  public double getMaxTps() {
+    return maxTps;
+  }
+
+  public Path getJournal() {
+    return journal;
+  }
+
+  public boolean isResume() {
+    return resume;
+  }
+
+  public char[] getSnapshotPassphrase() {
+    return snapshotPassphrase;
+  }
+
+  public Path getPlanOut() {
+    return planOut;
+  }
+
+  public List<ParameterFilter> getFilters() {
+    return filters;
+  }
+
+  public boolean isQuiet() {
+    return quiet;
+  }
+
+  public boolean isVerify() {
+    return verify;
+  }
+}
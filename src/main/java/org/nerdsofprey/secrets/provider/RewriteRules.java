@@ -0,0 +1,246 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A set of path rewrites applied to every parameter in one pass. Each line of a rules file is a kind, a pattern and a
+ * replacement separated by whitespace; blank lines and lines starting with {@code #} are ignored:
+ *
+ * <pre>
+ * prefix /app/old/              /app/new/
+ * glob   /svc/*&#47;db/**           /db/$1/$2
+ * regex  ^/team-(\w+)/(.+)$     /teams/$1/$2
+ * </pre>
+ *
+ * A prefix rule replaces the leading prefix. Glob and regex rules must match the whole name, and their replacement
+ * may refer to the captured groups; in a glob, every {@code *} (within one segment), {@code **} (across segments) and
+ * {@code ?} is a group. Rules are indexed by the literal text their pattern starts with, in a trie, so finding the
+ * candidates for a name costs one step per character however many rules there are. The candidate with the longest
+ * literal start wins, then the one listed first. Names that no rule matches are left alone.
+ */
+public final class RewriteRules implements PathMapper {
+  private static final Pattern GROUP_REFERENCE = Pattern.compile("\\$(\\d+)");
+  private static final String REGEX_META = "\\.[]{}()*+?^$|";
+
+  private final Node root = new Node();
+  private int size;
+
+  private RewriteRules() {
+  }
+
+  /**
+   * @throws IllegalArgumentException if a rule cannot be parsed
+   * @throws UncheckedIOException if the file cannot be read
+   */
+  public static RewriteRules load(Path file) {
+    try {
+      return parse(Files.readAllLines(file, StandardCharsets.UTF_8), file.toString());
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Unable to read the rules file %s", file), e);
+    }
+  }
+
+  /**
+   * @param source names the rules in error messages
+   * @throws IllegalArgumentException if a rule cannot be parsed
+   */
+  public static RewriteRules parse(List<String> lines, String source) {
+    RewriteRules rules = new RewriteRules();
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i).trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split("\\s+");
+      if (fields.length != 3) {
+        throw new IllegalArgumentException(
+            String.format("%s:%d should be a kind, a pattern and a replacement separated by whitespace", source,
+                i + 1));
+      }
+      try {
+        rules.add(rule(fields[0], fields[1], fields[2]));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(String.format("%s:%d %s", source, i + 1, e.getMessage()), e);
+      }
+    }
+    if (rules.size == 0) {
+      throw new IllegalArgumentException(String.format("%s holds no rules", source));
+    }
+    return rules;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  @Override public String map(String name) {
+    // the nodes along the name that hold rules, shallowest first
+    List<Node> candidates = new ArrayList<>();
+    Node node = root;
+    if (!node.rules.isEmpty()) {
+      candidates.add(node);
+    }
+    for (int i = 0; i < name.length() && node != null; i++) {
+      node = node.children.get(name.charAt(i));
+      if (node != null && !node.rules.isEmpty()) {
+        candidates.add(node);
+      }
+    }
+    for (int i = candidates.size() - 1; i >= 0; i--) {
+      for (Rule rule : candidates.get(i).rules) {
+        String target = rule.apply(name);
+        if (target != null) {
+          return target;
+        }
+      }
+    }
+    return null;
+  }
+
+  private void add(Rule rule) {
+    Node node = root;
+    for (int i = 0; i < rule.literal.length(); i++) {
+      node = node.children.computeIfAbsent(rule.literal.charAt(i), c -> new Node());
+    }
+    node.rules.add(rule);
+    size++;
+  }
+
+  private static Rule rule(String kind, String pattern, String replacement) {
+    switch (kind) {
+      case "prefix":
+        PathMapper mapper = PathMapper.prefix(pattern, replacement);
+        return new Rule(pattern, name -> name.startsWith(pattern) ? mapper.map(name) : null);
+      case "glob":
+        return patternRule(globLiteral(pattern), compile(globToRegex(pattern)), replacement);
+      case "regex":
+        return patternRule(regexLiteral(pattern), compile(pattern), replacement);
+      default:
+        throw new IllegalArgumentException(
+            String.format("has the unknown kind '%s'; expected prefix, glob or regex", kind));
+    }
+  }
+
+  private static Rule patternRule(String literal, Pattern pattern, String replacement) {
+    int groups = pattern.matcher("").groupCount();
+    Matcher references = GROUP_REFERENCE.matcher(replacement);
+    while (references.find()) {
+      if (Integer.parseInt(references.group(1)) > groups) {
+        throw new IllegalArgumentException(
+            String.format("refers to group %s, but its pattern has %d", references.group(1), groups));
+      }
+    }
+    return new Rule(literal, name -> {
+      Matcher matcher = pattern.matcher(name);
+      return matcher.matches() ? matcher.replaceFirst(replacement) : null;
+    });
+  }
+
+  private static Pattern compile(String regex) {
+    try {
+      return Pattern.compile(regex);
+    } catch (PatternSyntaxException e) {
+      throw new IllegalArgumentException(String.format("has an invalid pattern: %s", e.getDescription()), e);
+    }
+  }
+
+  private static String globLiteral(String glob) {
+    int end = 0;
+    while (end < glob.length() && glob.charAt(end) != '*' && glob.charAt(end) != '?') {
+      end++;
+    }
+    return glob.substring(0, end);
+  }
+
+  private static String globToRegex(String glob) {
+    StringBuilder regex = new StringBuilder();
+    StringBuilder literal = new StringBuilder();
+    for (int i = 0; i < glob.length(); i++) {
+      char c = glob.charAt(i);
+      if (c != '*' && c != '?') {
+        literal.append(c);
+        continue;
+      }
+      if (literal.length() > 0) {
+        regex.append(Pattern.quote(literal.toString()));
+        literal.setLength(0);
+      }
+      if (c == '?') {
+        regex.append("([^/])");
+      } else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+        regex.append("(.*)");
+        i++;
+      } else {
+        regex.append("([^/]*)");
+      }
+    }
+    if (literal.length() > 0) {
+      regex.append(Pattern.quote(literal.toString()));
+    }
+    return regex.toString();
+  }
+
+  /**
+   * @return the text every match must start with: the characters after a leading {@code ^} up to the first
+   *     metacharacter, less the last one if the metacharacter makes it optional; nothing if the pattern has
+   *     alternatives
+   */
+  private static String regexLiteral(String regex) {
+    if (!regex.startsWith("^") || regex.indexOf('|') >= 0) {
+      return "";
+    }
+    int end = 1;
+    while (end < regex.length() && REGEX_META.indexOf(regex.charAt(end)) < 0) {
+      end++;
+    }
+    if (end < regex.length() && end > 1 && "?*{".indexOf(regex.charAt(end)) >= 0) {
+      end--;
+    }
+    return regex.substring(1, end);
+  }
+
+  private static final class Node {
+    private final Map<Character, Node> children = new HashMap<>();
+    private final List<Rule> rules = new ArrayList<>(1);
+  }
+
+  private static final class Rule {
+    private final String literal;
+    private final PathMapper mapper;
+
+    private Rule(String literal, PathMapper mapper) {
+      this.literal = literal;
+      this.mapper = mapper;
+    }
+
+    private String apply(String name) {
+      return mapper.map(name);
+    }
+  }
+}
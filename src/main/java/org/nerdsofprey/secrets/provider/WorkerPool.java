@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed-size pool of worker threads that never has more than {@code concurrency} tasks in flight. Callers that
+ * {@link #submit(Runnable)} while every worker is busy block until one frees up, so a producer can never run ahead of
+ * the workers.
+ */
+public class WorkerPool implements AutoCloseable {
+  private final static Logger log = LoggerFactory.getLogger(WorkerPool.class);
+  private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+  private final int concurrency;
+  private final Semaphore permits;
+  private final ExecutorService executor;
+  private final AtomicLong uncaught = new AtomicLong();
+
+  public WorkerPool(int concurrency) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("Concurrency must be at least 1");
+    }
+    this.concurrency = concurrency;
+    this.permits = new Semaphore(concurrency);
+    int pool = POOL_COUNT.incrementAndGet();
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+      Thread thread = new Thread(runnable, String.format("worker-%d-%d", pool, threadCount.incrementAndGet()));
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Runs the task on the next free worker, blocking the caller until one is available.
+   */
+  public void submit(Runnable task) {
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for a free worker", e);
+    }
+
+    try {
+      executor.execute(() -> {
+        try {
+          task.run();
+        } catch (RuntimeException e) {
+          uncaught.incrementAndGet();
+          log.error("Unexpected error in worker task", e);
+        } finally {
+          permits.release();
+        }
+      });
+    } catch (RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Waits for every submitted task to finish.
+   *
+   * @return the number of tasks that ended with an uncaught exception since the last call
+   */
+  public long awaitCompletion() {
+    try {
+      permits.acquire(concurrency);
+      permits.release(concurrency);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for workers to finish", e);
+    }
+    return uncaught.getAndSet(0);
+  }
+
+  @Override public void close() {
+    executor.shutdown();
+  }
+}
@@ -15,27 +15,256 @@
  */
 package org.nerdsofprey.secrets.provider.aws;
 
+import org.nerdsofprey.secrets.provider.AsyncCloudProvider;
+import org.nerdsofprey.secrets.provider.CheckpointJournal;
 import org.nerdsofprey.secrets.provider.CloudProvider;
+import org.nerdsofprey.secrets.provider.Destination;
+import org.nerdsofprey.secrets.provider.ItemResult;
+import org.nerdsofprey.secrets.provider.OperationMetrics;
+import org.nerdsofprey.secrets.provider.OperationReport;
+import org.nerdsofprey.secrets.provider.ParameterFilter;
+import org.nerdsofprey.secrets.provider.PathMapper;
+import org.nerdsofprey.secrets.provider.ProviderOptions;
+import org.nerdsofprey.secrets.provider.WorkerPool;
+import org.nerdsofprey.secrets.provider.snapshot.Snapshot;
+import org.nerdsofprey.secrets.provider.snapshot.SnapshotReader;
+import org.nerdsofprey.secrets.provider.snapshot.SnapshotWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.ssm.SsmClient;
 import software.amazon.awssdk.services.ssm.model.*;
 
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
 
-public class AWSProvider implements CloudProvider {
+public class AWSProvider implements CloudProvider, AsyncCloudProvider {
   private final static Logger log = LoggerFactory.getLogger(AWSProvider.class);
+  private static final AtomicInteger OPERATION_COUNT = new AtomicInteger();
+  // the most names a single DeleteParameters or GetParameters call accepts
+  private static final int BATCH_SIZE = 10;
+  // the most results a single DescribeParameters page returns
+  private static final int DESCRIBE_PAGE_SIZE = 50;
   private final SsmClient ssmClient;
+  private final ProviderOptions options;
+  private final Function<Destination, SsmClient> targetClients;
+  private final int concurrency;
+  private final int listConcurrency;
+  private final double maxTps;
+  private final OperationMetrics metrics;
+  private final RateController rateController;
+  private final Path journalPath;
+  private final boolean resume;
+  private final char[] snapshotPassphrase;
+  private final Path planPath;
+  private final List<ParameterFilter> filters;
+  // per-parameter lines are the bulk of the log on a large run; failures are always logged
+  private final boolean logItems;
+  private final boolean verify;
+  // receives the outcome of every copy, delete and read-back
+  private final Consumer<ItemResult> results;
 
   public AWSProvider(SsmClient ssmClient) {
+    this(ssmClient, new ProviderOptions());
+  }
+
+  public AWSProvider(SsmClient ssmClient, ProviderOptions options) {
+    this(ssmClient, options, destination -> {
+      throw new IllegalArgumentException(String.format("No client is available for the destination %s", destination));
+    });
+  }
+
+  /**
+   * @param targetClients supplies the client for each destination in another region or account
+   */
+  public AWSProvider(SsmClient ssmClient, ProviderOptions options, Function<Destination, SsmClient> targetClients) {
+    this(ssmClient, options, targetClients, new RateController(options.getMaxTps()), new OperationMetrics(),
+        result -> {
+        });
+  }
+
+  private AWSProvider(SsmClient ssmClient, ProviderOptions options, Function<Destination, SsmClient> targetClients,
+      RateController rateController, OperationMetrics metrics, Consumer<ItemResult> results) {
     this.ssmClient = ssmClient;
+    this.options = options;
+    this.targetClients = targetClients;
+    this.metrics = metrics;
+    this.results = results;
+    this.concurrency = options.getConcurrency();
+    this.listConcurrency = options.getListConcurrency();
+    this.maxTps = options.getMaxTps();
+    this.rateController = rateController;
+    this.journalPath = options.getJournal();
+    this.resume = options.isResume();
+    this.snapshotPassphrase = options.getSnapshotPassphrase();
+    this.planPath = options.getPlanOut();
+    this.filters = options.getFilters();
+    this.logItems = !options.isQuiet();
+    this.verify = options.isVerify();
+  }
+
+  @Override public OperationMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Runs the operation against a provider of its own that shares this one's clients, options and rate controller, so
+   * concurrent operations stay under the one --max-tps ceiling and all slow down when any of them is throttled. Its
+   * metrics are its own and also roll up into this provider's.
+   */
+  @Override public CompletableFuture<OperationReport> submit(Predicate<CloudProvider> operation,
+      Flow.Subscriber<? super ItemResult> items) {
+    SubmissionPublisher<ItemResult> publisher = items == null ? null : new SubmissionPublisher<>();
+    if (publisher != null) {
+      publisher.subscribe(items);
+    }
+    Queue<ItemResult> failures = new ConcurrentLinkedQueue<>();
+    Consumer<ItemResult> results = result -> {
+      if (!result.isSuccess()) {
+        failures.add(result);
+      }
+      if (publisher != null) {
+        // blocks while the subscriber's buffer is full
+        publisher.submit(result);
+      }
+    };
+    AWSProvider run = new AWSProvider(ssmClient, options, targetClients, rateController, new OperationMetrics(metrics),
+        results);
+
+    CompletableFuture<OperationReport> report = new CompletableFuture<>();
+    Thread thread = new Thread(() -> {
+      long start = System.nanoTime();
+      try {
+        boolean success = operation.test(run);
+        if (publisher != null) {
+          publisher.close();
+        }
+        report.complete(new OperationReport(success, run.metrics, new ArrayList<>(failures),
+            Duration.ofNanos(System.nanoTime() - start)));
+      } catch (Throwable e) {
+        // an Error as well, or the caller would wait on the report and the subscriber on its results forever
+        if (publisher != null) {
+          publisher.closeExceptionally(e);
+        }
+        report.completeExceptionally(e);
+      }
+    }, String.format("operation-%d", OPERATION_COUNT.incrementAndGet()));
+    thread.setDaemon(true);
+    thread.start();
+    return report;
   }
 
   @Override public boolean performCopy(String source, String destination, boolean overwrite, boolean dryRun) {
+    if (Snapshot.isSnapshot(destination)) {
+      return exportSnapshot(source, Snapshot.pathOf(destination), dryRun);
+    }
+    if (Snapshot.isSnapshot(source)) {
+      return importSnapshot(Snapshot.pathOf(source), destination, overwrite, dryRun);
+    }
     return handleRequest(source, destination, dryRun, overwrite, true, false, false);
   }
 
+  @Override public boolean performCopy(String source, List<Destination> destinations, boolean overwrite,
+      boolean dryRun) {
+    if (destinations.size() == 1 && destinations.get(0).isLocal()) {
+      return performCopy(source, destinations.get(0).getPath(), overwrite, dryRun);
+    }
+
+    final String prefix = getPrefix(source);
+    List<Target> targets = new ArrayList<>(destinations.size());
+    for (Destination destination : destinations) {
+      // every region and account throttles separately, so each remote target gets its own rate
+      targets.add(destination.isLocal()
+          ? new Target(destination, ssmClient, rateController, formatDestination(destination.getPath()))
+          : new Target(destination, targetClients.apply(destination), new RateController(maxTps),
+              formatDestination(destination.getPath())));
+    }
+
+    // the source is listed and decrypted once, and each parameter becomes one put per target
+    Iterable<TargetedParameter> puts = flatMap(dryRun ? listMetadata(source) : listParameters(source),
+        parameter -> targets.stream().map(target -> new TargetedParameter(parameter, target)).collect(
+            Collectors.toList()));
+
+    Verification verification = verify && !dryRun ? new Verification() : null;
+    try (CheckpointJournal journal = openJournal()) {
+      AtomicLong resumed = new AtomicLong();
+      Iterable<TargetedParameter> remaining = filter(puts, put -> {
+        if (journal.isDone(put.journalEntry(prefix))) {
+          resumed.incrementAndGet();
+          if (verification != null) {
+            verification.record(put.target, targetName(put.parameter, prefix, put.target.path), put.parameter);
+          }
+          return false;
+        }
+        return true;
+      });
+      if (dryRun) {
+        return performDryRunFanOut(remaining, prefix);
+      }
+
+      Tally tally = runInParallel(remaining, put -> {
+        boolean success = copyParameter(put.target, put.parameter, prefix, overwrite);
+        (success ? put.target.copied : put.target.failed).incrementAndGet();
+        if (success) {
+          journal.record(put.journalEntry(prefix));
+          if (verification != null) {
+            verification.record(put.target, targetName(put.parameter, prefix, put.target.path), put.parameter);
+          }
+        }
+        return success;
+      });
+      if (resumed.get() > 0) {
+        log.info(String.format("Skipped %d copies that the journal shows were already made", resumed.get()));
+      }
+
+      for (Target target : targets) {
+        if (target.failed.get() > 0) {
+          log.error(String.format("Copied %d parameters to %s, but %d failed", target.copied.get(),
+              target.destination, target.failed.get()));
+        } else {
+          log.info(String.format("Copied %d parameters to %s", target.copied.get(), target.destination));
+        }
+      }
+      long mismatches = verification == null ? 0 : verification.verify();
+      if (tally.errors > 0) {
+        log.error(String.format(
+            "Made %d total copies across %d destinations, but encountered %d errors. The above error log includes the names of the parameters that failed to create",
+            tally.total, targets.size(), tally.errors));
+        return false;
+      }
+      return mismatches == 0;
+    }
+  }
+
   @Override public boolean performDelete(String source, boolean dryRun) {
     return handleRequest(source, "", dryRun, false, false, false, true);
   }
@@ -44,132 +273,1121 @@ public class AWSProvider implements CloudProvider {
     return handleRequest(source, destination, dryRun, overwrite, false, true, false);
   }
 
-  private boolean handleRequest(String source, String destination, boolean dryRun, boolean overwrite, boolean copy,
-      boolean move, boolean delete) {
+  @Override public boolean performSync(String source, String destination, boolean prune, boolean dryRun) {
+    final String finalDestination = formatDestination(destination);
+    final String prefix = getPrefix(source);
+
+    // one pass over the destination, keeping only a digest per name rather than the decrypted values
+    Map<String, byte[]> existing = new HashMap<>();
+    try {
+      for (Parameter parameter : listParameters(finalDestination)) {
+        existing.put(parameter.name(), ParameterDigest.of(parameter));
+      }
+    } catch (SdkException e) {
+      log.error(String.format("Failed to list the destination parameters: %s", e.getMessage()));
+      return false;
+    }
+    log.info(String.format("Found %d existing parameters in destination path", existing.size()));
+
+    AtomicLong unchanged = new AtomicLong();
+    Iterable<Parameter> changed = filter(listParameters(source), parameter -> {
+      byte[] current = existing.remove(targetName(parameter, prefix, finalDestination));
+      if (current != null && Arrays.equals(current, ParameterDigest.of(parameter))) {
+        unchanged.incrementAndGet();
+        return false;
+      }
+      return true;
+    });
+    boolean success = performCopyHelper(changed, prefix, finalDestination, true, dryRun, null,
+        CheckpointJournal.disabled());
+    log.info(String.format("Skipped %d parameters that were already up to date", unchanged.get()));
+
+    if (!prune) {
+      return success;
+    }
+    if (!success) {
+      // a partial source listing would make live destination parameters look orphaned
+      log.error("Not pruning the destination because the sync did not complete");
+      return false;
+    }
+    log.info(String.format("Pruning %d destination parameters that no longer exist in the source", existing.size()));
+    return performDeleteHelper(existing.keySet(), dryRun, CheckpointJournal.disabled());
+  }
+
+  @Override public boolean performWatch(String source, String destination, boolean prune, Duration interval,
+      long cycles) {
     final String finalDestination = formatDestination(destination);
     final String prefix = getPrefix(source);
+    Target target = new Target(Destination.of(finalDestination), ssmClient, rateController, finalDestination);
+    log.info(String.format("Watching %s for changes every %d s", source, interval.toSeconds()));
 
-    List<Parameter> sourceParameters = compileParameterList(source);
+    // the source revision of every name, or null until a sync has brought the destination level with the source
+    Map<String, Revision> index = null;
+    boolean success = true;
+    for (long cycle = 1; ; cycle++) {
+      if (index == null) {
+        index = syncBaseline(source, finalDestination, prune);
+        success &= index != null;
+      } else {
+        success &= copyChanges(source, prefix, target, index, prune);
+      }
+      if (cycle == cycles) {
+        return success;
+      }
+      try {
+        Thread.sleep(interval.toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        log.info(String.format("Stopped watching %s", source));
+        return success;
+      }
+    }
+  }
 
-    log.info(String.format("Found %d total parameters in source path", sourceParameters.size()));
+  /**
+   * Indexes the source revisions, then syncs. Anything that changes in between is copied by the sync and again by the
+   * next cycle, which is harmless, whereas indexing after the sync could miss a change.
+   *
+   * @return the index, or {@code null} if the sync has to be retried
+   */
+  private Map<String, Revision> syncBaseline(String source, String destination, boolean prune) {
+    Map<String, Revision> index = new ConcurrentHashMap<>();
+    try {
+      for (Parameter parameter : listMetadata(source)) {
+        index.put(parameter.name(), new Revision(parameter));
+      }
+    } catch (SdkException e) {
+      log.error(String.format("Failed to list the source parameters: %s", e.getMessage()));
+      return null;
+    }
+    if (!performSync(source, destination, prune, false)) {
+      log.error("The sync did not complete, so it will be run again on the next cycle");
+      return null;
+    }
+    return index;
+  }
 
-    if (copy) {
-      return performCopyHelper(sourceParameters, prefix, finalDestination, overwrite, dryRun);
+  /**
+   * One metadata-only pass over the source, followed by a copy of each parameter whose revision is not the indexed one.
+   * A parameter that fails to copy keeps its old revision in the index, and one that fails to prune stays in it, so
+   * either is tried again on the next cycle.
+   */
+  private boolean copyChanges(String source, String prefix, Target target, Map<String, Revision> index,
+      boolean prune) {
+    Map<String, Revision> changed = new HashMap<>();
+    Set<String> removed = new HashSet<>(index.keySet());
+    try {
+      for (Parameter parameter : listMetadata(source)) {
+        removed.remove(parameter.name());
+        Revision revision = new Revision(parameter);
+        if (!revision.equals(index.get(parameter.name()))) {
+          changed.put(parameter.name(), revision);
+        }
+      }
+    } catch (SdkException e) {
+      log.error(String.format("Failed to list the source parameters, so this cycle was skipped: %s", e.getMessage()));
+      return false;
     }
 
-    if (move) {
-      if (performCopyHelper(sourceParameters, prefix, finalDestination, overwrite, dryRun)) {
-        return performDeleteHelper(sourceParameters, dryRun);
+    Verification verification = verify ? new Verification() : null;
+    Tally tally = runInParallel(batches(changed.keySet(), BATCH_SIZE), List::size, names -> {
+      List<Parameter> parameters;
+      try {
+        parameters = getParameters(names, true);
+      } catch (SdkException e) {
+        names.forEach(name -> log.error("Failed to read parameter {}: {}", name, e.getMessage()));
+        names.forEach(name -> failed(ItemResult.Action.COPY, name, null, e.getMessage()));
+        return names.size();
+      }
+      // a name missing here was deleted since the listing, and the next cycle sees it as removed
+      int failures = 0;
+      for (Parameter parameter : parameters) {
+        if (copyParameter(target, parameter, prefix, true)) {
+          // the listed revision rather than the one read, so the next listing compares like with like
+          index.put(parameter.name(), changed.get(parameter.name()));
+          if (verification != null) {
+            verification.record(target, targetName(parameter, prefix, target.path), parameter);
+          }
+        } else {
+          failures++;
+        }
       }
+      return failures;
+    });
+
+    long mismatches = verification == null || tally.total == 0 ? 0 : verification.verify();
+    boolean pruned = true;
+    if (prune && !removed.isEmpty()) {
+      PathMapper mapper = PathMapper.prefix(prefix, target.path);
+      Map<String, String> sources = new HashMap<>();
+      removed.forEach(name -> sources.put(mapper.map(name), name));
+      Queue<String> deleted = new ConcurrentLinkedQueue<>();
+      pruned = performDeleteHelper(sources.keySet(), false, CheckpointJournal.disabled(), deleted);
+      deleted.forEach(name -> index.remove(sources.get(name)));
+    } else {
+      index.keySet().removeAll(removed);
+    }
+
+    if (tally.errors > 0) {
+      log.error(String.format(
+          "Found %d changed parameters, but %d were not copied. The above error log includes their names; they will be tried again on the next cycle",
+          tally.total, tally.errors));
+    } else if (tally.total > 0 || !removed.isEmpty()) {
+      log.info(String.format("Copied %d changed parameters; %d were removed from the source", tally.total,
+          removed.size()));
+    } else {
+      log.debug("No changes since the last cycle");
+    }
+    return tally.errors == 0 && mismatches == 0 && pruned;
+  }
+
+  /**
+   * Streams the source listing into a snapshot file, one frame at a time.
+   */
+  private boolean exportSnapshot(String source, Path file, boolean dryRun) {
+    if (dryRun) {
+      long total = 0;
+      try {
+        for (Parameter parameter : listMetadata(source)) {
+          log.info("Would export '{}' to {}", parameter.name(), file);
+          total++;
+        }
+      } catch (SdkException e) {
+        log.error(String.format("Failed to list the source parameters: %s", e.getMessage()));
+        return false;
+      }
+      log.info(String.format("Dry run was selected, so the above %d export operations were _not_ executed.", total));
+      return true;
+    }
+    if (snapshotPassphrase == null) {
+      log.warn(String.format("The snapshot %s is not encrypted; SecureString values are stored in plain text", file));
+    }
+
+    try (SnapshotWriter writer = SnapshotWriter.create(file, getPrefix(source), snapshotPassphrase)) {
+      try {
+        for (Parameter parameter : listParameters(source)) {
+          writer.write(parameter);
+          metrics.recordCopied();
+          results.accept(ItemResult.succeeded(ItemResult.Action.COPY, parameter.name(), file.toString()));
+          metrics.recordBytesWritten(valueBytes(parameter));
+        }
+      } catch (SdkException e) {
+        log.error(String.format(
+            "Failed to list the source parameters after exporting %d of them, so the snapshot %s was not written: %s",
+            writer.getCount(), file, e.getMessage()));
+        return false;
+      }
+      writer.finish();
+      log.info(String.format("Exported %d parameters to %s", writer.getCount(), file));
+      return true;
+    } catch (UncheckedIOException e) {
+      log.error(e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Restores a snapshot through the same put path as a copy, mapping the prefix it was exported from onto the
+   * destination.
+   */
+  private boolean importSnapshot(Path file, String destination, boolean overwrite, boolean dryRun) {
+    try (SnapshotReader reader = SnapshotReader.open(file, snapshotPassphrase);
+        CheckpointJournal journal = openJournal()) {
+      return performCopyHelper(reader, reader.getPrefix(), formatDestination(destination), overwrite, dryRun, null,
+          journal);
+    } catch (UncheckedIOException e) {
+      log.error(e.getMessage());
+      return false;
+    }
+  }
+
+  private boolean handleRequest(String source, String destination, boolean dryRun, boolean overwrite, boolean copy,
+      boolean move, boolean delete) {
+    final String finalDestination = formatDestination(destination);
+    final String prefix = getPrefix(source);
+
+    // only a copy that is really made, or a plan that records digests, needs the values
+    boolean needsValues = !delete && (!dryRun || planPath != null);
+    Iterable<Parameter> sourceParameters = needsValues ? listParameters(source) : listMetadata(source);
+
+    if (dryRun && planPath != null) {
+      return writePlan(copy ? PlanFile.Operation.COPY : move ? PlanFile.Operation.MOVE : PlanFile.Operation.DELETE,
+          source, prefix, finalDestination, overwrite, sourceParameters);
     }
 
-    if (delete) {
-      return performDeleteHelper(sourceParameters, dryRun);
+    try (CheckpointJournal journal = openJournal()) {
+      if (copy) {
+        return performCopyHelper(sourceParameters, prefix, finalDestination, overwrite, dryRun, null, journal);
+      }
+
+      if (move && dryRun) {
+        Queue<String> copied = new ConcurrentLinkedQueue<>();
+        if (performCopyHelper(sourceParameters, prefix, finalDestination, overwrite, true, copied, journal)) {
+          return performDeleteHelper(copied, true, journal);
+        }
+        return false;
+      }
+
+      if (move) {
+        return performMoveHelper(sourceParameters, prefix, finalDestination, overwrite, journal);
+      }
+
+      if (delete) {
+        return performDeleteHelper(names(sourceParameters), dryRun, journal);
+      }
     }
 
     throw new RuntimeException("Invalid parameters were provided, no action was taken");
   }
 
-  private boolean performDeleteHelper(List<Parameter> sourceParameters, boolean dryRun) {
+  /**
+   * Logs what the dry run would do and records it in the plan file, without keeping any values.
+   */
+  private boolean writePlan(PlanFile.Operation operation, String source, String prefix, String destinationPrefix,
+      boolean overwrite, Iterable<Parameter> parameters) {
+    boolean delete = operation == PlanFile.Operation.DELETE;
+    try (PlanFile.Writer writer = new PlanFile.Writer(planPath, operation, overwrite, source,
+        delete ? "" : destinationPrefix)) {
+      try {
+        for (Parameter parameter : parameters) {
+          String target = delete ? "" : targetName(parameter, prefix, destinationPrefix);
+          if (delete) {
+            log.info("Would delete '{}'", parameter.name());
+          } else {
+            log.info("Would copy '{}' -> '{}'", parameter.name(), target);
+          }
+          writer.write(new PlanFile.Entry(parameter.name(), target,
+              parameter.version() == null ? 0 : parameter.version(), ParameterDigest.of(parameter)));
+        }
+      } catch (SdkException e) {
+        log.error(String.format("Failed to list the source parameters, so the plan %s was left incomplete: %s",
+            planPath, e.getMessage()));
+        return false;
+      }
+      writer.finish();
+      log.info(String.format(
+          "Dry run was selected, so the above %d operations were _not_ executed. They were saved to %s; run them with --apply",
+          writer.getCount(), planPath));
+      return true;
+    } catch (UncheckedIOException e) {
+      log.error(e.getMessage());
+      return false;
+    }
+  }
+
+  @Override public boolean performRewrite(String source, PathMapper mapper, boolean overwrite, boolean move,
+      boolean dryRun) {
+    // one pass over the names resolves every target, so collisions are caught before anything is written
+    List<PlanFile.Entry> entries = new ArrayList<>();
+    Map<String, String> sourceByTarget = new HashMap<>();
+    Set<String> sources = new HashSet<>();
+    long unmatched = 0;
+    try {
+      for (Parameter parameter : listMetadata(source)) {
+        sources.add(parameter.name());
+        String target = mapper.map(parameter.name());
+        if (target == null) {
+          unmatched++;
+          continue;
+        }
+        entries.add(new PlanFile.Entry(parameter.name(), target,
+            parameter.version() == null ? 0 : parameter.version(), null));
+      }
+    } catch (SdkException e) {
+      log.error(String.format("Failed to list the source parameters, so nothing was rewritten: %s", e.getMessage()));
+      return false;
+    }
+
+    long collisions = 0;
+    for (PlanFile.Entry entry : entries) {
+      String other = sourceByTarget.putIfAbsent(entry.target, entry.source);
+      if (other != null) {
+        log.error("'{}' and '{}' would both be written to '{}'", other, entry.source, entry.target);
+        collisions++;
+      } else if (sources.contains(entry.target)) {
+        log.error("'{}' would be written over '{}', which this run also reads", entry.source, entry.target);
+        collisions++;
+      }
+    }
+    if (collisions > 0) {
+      log.error(String.format("Found %d collisions among %d rewrites, so nothing was written", collisions,
+          entries.size()));
+      return false;
+    }
+    log.info(String.format("Rewriting %d parameters; %d matched no rule and are left alone", entries.size(),
+        unmatched));
+
     if (dryRun) {
-      return performDryRunDelete(sourceParameters);
+      entries.forEach(entry -> log.info("Would {} '{}' -> '{}'", move ? "move" : "copy", entry.source, entry.target));
+      log.info(String.format("Dry run was selected, so the above %d operations were _not_ executed.",
+          entries.size()));
+      return true;
+    }
+
+    metrics.expect(entries.size() * (move ? 2L : 1L));
+    try (CheckpointJournal journal = openJournal()) {
+      AtomicLong stale = new AtomicLong();
+      boolean success = copyEntries(entries, overwrite, move, false, journal, stale);
+      if (stale.get() > 0) {
+        log.error(String.format("%d parameters changed or disappeared while the run was in progress and were left alone",
+            stale.get()));
+      }
+      return success;
+    }
+  }
+
+  @Override public boolean performApply(Path plan) {
+    try (PlanFile.Reader reader = new PlanFile.Reader(plan); CheckpointJournal journal = openJournal()) {
+      log.info(String.format("Applying the %s of %s%s saved in %s",
+          reader.getOperation().name().toLowerCase(Locale.ROOT), reader.getSource(),
+          reader.getDestination().isEmpty() ? "" : " to " + reader.getDestination(), plan));
+      // opening the plan has already checked that it is whole, so nothing below runs on a plan that was cut short
+      metrics.expect(reader.getCount() * (reader.getOperation() == PlanFile.Operation.MOVE ? 2L : 1L));
+      AtomicLong stale = new AtomicLong();
+      boolean success = reader.getOperation() == PlanFile.Operation.DELETE ? applyDeletes(reader, journal, stale)
+          : applyCopies(reader, journal, stale);
+      if (stale.get() > 0) {
+        log.error(String.format(
+            "%d parameters changed or disappeared after the plan was made and were left alone; make a new plan to pick them up",
+            stale.get()));
+      }
+      return success;
+    } catch (UncheckedIOException e) {
+      log.error(e.getMessage());
+      return false;
+    }
+  }
+
+  private boolean applyCopies(PlanFile.Reader plan, CheckpointJournal journal, AtomicLong stale) {
+    return copyEntries(plan, plan.isOverwrite(), plan.getOperation() == PlanFile.Operation.MOVE, true, journal,
+        stale);
+  }
+
+  /**
+   * Reads the sources {@value #BATCH_SIZE} at a time and writes each to its own target name, skipping any whose
+   * version, or with {@code checkDigest} value, no longer matches the entry.
+   */
+  private boolean copyEntries(Iterable<PlanFile.Entry> entries, boolean overwrite, boolean move, boolean checkDigest,
+      CheckpointJournal journal, AtomicLong stale) {
+    // entries carry whole target names, so the target path is only a label
+    Target target = new Target(Destination.of("/"), ssmClient, rateController, "/");
+    Verification verification = verify ? new Verification() : null;
+    PendingDeletes deletes = move ? new PendingDeletes(journal, verification == null) : null;
+    Iterable<PlanFile.Entry> remaining = filter(entries, entry -> {
+      if (journal.isDone(CheckpointJournal.copied(entry.source, entry.target))) {
+        if (deletes != null) {
+          deletes.add(entry.source);
+        }
+        return false;
+      }
+      return true;
+    });
+
+    Tally tally = runInParallel(batches(remaining, BATCH_SIZE), List::size, batch -> {
+      Map<String, Parameter> current = fetchParameters(batch, true, ItemResult.Action.COPY);
+      if (current == null) {
+        return batch.size();
+      }
+      int failures = 0;
+      for (PlanFile.Entry entry : batch) {
+        Parameter parameter = current.get(entry.source);
+        if (!isUnchanged(entry, parameter, checkDigest, ItemResult.Action.COPY)) {
+          stale.incrementAndGet();
+          failures++;
+        } else if (putParameter(target, parameter, entry.target, overwrite)) {
+          journal.record(CheckpointJournal.copied(entry.source, entry.target));
+          if (verification != null) {
+            verification.record(target, entry.target, parameter);
+          }
+          if (deletes != null) {
+            deletes.add(entry.source);
+          }
+        } else {
+          failures++;
+        }
+      }
+      return failures;
+    });
+
+    if (verification != null && verification.verify() > 0) {
+      if (deletes != null) {
+        log.error("Not deleting any sources, because the copies above do not match them");
+      }
+      return false;
+    }
+    long deleteErrors = deletes == null ? 0 : deletes.flush();
+    if (tally.errors > 0 || deleteErrors > 0) {
+      log.error(String.format(
+          "Found %d parameters to copy, but %d were not copied and %d sources were not deleted. The above error log includes their names",
+          tally.total, tally.errors, deleteErrors));
+      return false;
+    }
+    log.info(String.format(deletes == null ? "Copied %d parameters" : "Moved %d parameters", tally.total));
+    return true;
+  }
+
+  private boolean applyDeletes(PlanFile.Reader plan, CheckpointJournal journal, AtomicLong stale) {
+    Iterable<PlanFile.Entry> remaining = filter(plan,
+        entry -> !journal.isDone(CheckpointJournal.deleted(entry.source)));
+
+    Tally tally = runInParallel(batches(remaining, BATCH_SIZE), List::size, batch -> {
+      // a delete only needs to know the parameter is the one that was planned, and every put bumps the version
+      Map<String, Parameter> current = fetchParameters(batch, false, ItemResult.Action.DELETE);
+      if (current == null) {
+        return batch.size();
+      }
+      List<String> unchanged = new ArrayList<>(batch.size());
+      for (PlanFile.Entry entry : batch) {
+        if (isUnchanged(entry, current.get(entry.source), false, ItemResult.Action.DELETE)) {
+          unchanged.add(entry.source);
+        } else {
+          stale.incrementAndGet();
+        }
+      }
+      int failures = batch.size() - unchanged.size();
+      return unchanged.isEmpty() ? failures : failures + deleteBatch(unchanged, journal);
+    });
+
+    if (tally.errors > 0) {
+      log.error(String.format(
+          "The plan holds %d parameters to delete, but %d were not deleted. The above error log includes their names",
+          tally.total, tally.errors));
+      return false;
     }
+    log.info(String.format("Deleted %d parameters", tally.total));
+    return true;
+  }
 
-    long errors = sourceParameters.stream().filter(parameter -> {
-      log.info(String.format("Preparing to delete '%s'", parameter.name()));
-      DeleteParameterRequest deleteRequest = DeleteParameterRequest.builder().name(parameter.name()).build();
-      DeleteParameterResponse deleteResponse = ssmClient.deleteParameter(deleteRequest);
-      boolean failed = !deleteResponse.sdkHttpResponse().isSuccessful();
-      if (failed) {
-        log.error(String.format("Failed to delete parameter %s", parameter.name()));
+  /**
+   * Fetches the current state of up to {@value #BATCH_SIZE} planned parameters with a single call.
+   *
+   * @return the parameters that still exist by name, or {@code null} if the call failed
+   */
+  private Map<String, Parameter> fetchParameters(List<PlanFile.Entry> batch, boolean decrypt,
+      ItemResult.Action action) {
+    List<String> names = batch.stream().map(entry -> entry.source).collect(Collectors.toList());
+    try {
+      Map<String, Parameter> current = new HashMap<>();
+      for (Parameter parameter : getParameters(names, decrypt)) {
+        current.put(parameter.name(), parameter);
       }
-      return failed;
-    }).count();
+      return current;
+    } catch (SdkException e) {
+      names.forEach(name -> log.error("Failed to read parameter {}: {}", name, e.getMessage()));
+      batch.forEach(entry -> failed(action, entry.source, targetOf(entry, action), e.getMessage()));
+      return null;
+    }
+  }
+
+  /**
+   * @return the named parameters that exist; names that do not are left out
+   */
+  private List<Parameter> getParameters(List<String> names, boolean decrypt) {
+    return getParameters(ssmClient, rateController, names, decrypt);
+  }
 
-    if (errors > 0) {
+  private List<Parameter> getParameters(SsmClient client, RateController rate, List<String> names, boolean decrypt) {
+    GetParametersRequest request = GetParametersRequest.builder().names(names).withDecryption(decrypt).build();
+    GetParametersResponse response = call(OperationMetrics.Call.GET, rate, () -> client.getParameters(request));
+    response.parameters().forEach(parameter -> metrics.recordBytesRead(valueBytes(parameter)));
+    return response.parameters();
+  }
+
+  private boolean isUnchanged(PlanFile.Entry entry, Parameter parameter, boolean checkDigest,
+      ItemResult.Action action) {
+    String error;
+    if (parameter == null) {
+      error = "it no longer exists";
+      log.error("'{}' no longer exists", entry.source);
+    } else if (parameter.version() == null || parameter.version() != entry.version) {
+      error = "it changed since the plan was made";
+      log.error("'{}' is at version {}, but the plan was made at version {}", entry.source, parameter.version(),
+          entry.version);
+    } else if (checkDigest && !Arrays.equals(ParameterDigest.of(parameter), entry.digest)) {
+      error = "it changed since the plan was made";
+      log.error("'{}' no longer matches the value the plan was made with", entry.source);
+    } else {
+      return true;
+    }
+    failed(action, entry.source, targetOf(entry, action), error);
+    return false;
+  }
+
+  private static String targetOf(PlanFile.Entry entry, ItemResult.Action action) {
+    return action == ItemResult.Action.DELETE ? null : entry.target;
+  }
+
+  private void failed(ItemResult.Action action, String source, String target, String error) {
+    metrics.recordFailed();
+    results.accept(ItemResult.failed(action, source, target, error));
+  }
+
+  private CheckpointJournal openJournal() {
+    if (journalPath == null) {
+      return CheckpointJournal.disabled();
+    }
+    CheckpointJournal journal = CheckpointJournal.open(journalPath, resume);
+    if (resume) {
+      log.info(String.format("Resuming from %s, which records %d completed items", journalPath, journal.size()));
+    }
+    return journal;
+  }
+
+  private boolean performDeleteHelper(Iterable<String> names, boolean dryRun, CheckpointJournal journal) {
+    return performDeleteHelper(names, dryRun, journal, null);
+  }
+
+  /**
+   * @param deleted when not null, receives every name that was deleted
+   */
+  private boolean performDeleteHelper(Iterable<String> names, boolean dryRun, CheckpointJournal journal,
+      Queue<String> deleted) {
+    Iterable<String> remaining = filter(names, name -> !journal.isDone(CheckpointJournal.deleted(name)));
+    if (dryRun) {
+      return performDryRunDelete(remaining);
+    }
+
+    Tally tally = runInParallel(batches(remaining, BATCH_SIZE), List::size,
+        batch -> deleteBatch(batch, journal, deleted));
+
+    if (tally.errors > 0) {
       log.error(String.format(
           "Found %d total parameters to delete, but encountered %d errors. The above error log includes the names of the parameters that failed to delete",
-          sourceParameters.size(), errors));
+          tally.total, tally.errors));
       return false; // failed to delete the requested parameters
     }
 
+    log.info(String.format("Deleted %d parameters", tally.total));
     return true; // success!
   }
 
-  private boolean performCopyHelper(List<Parameter> toCopy, String prefix, String destinationPrefix, boolean overwrite,
-      boolean dryRun) {
+  /**
+   * @param copied when not null, receives the source name of every parameter that was copied successfully, including
+   *     those the journal shows were copied by an earlier run
+   */
+  private boolean performCopyHelper(Iterable<Parameter> toCopy, String prefix, String destinationPrefix,
+      boolean overwrite, boolean dryRun, Queue<String> copied, CheckpointJournal journal) {
+    Target target = new Target(Destination.of(destinationPrefix), ssmClient, rateController, destinationPrefix);
+    Verification verification = verify && !dryRun ? new Verification() : null;
+    AtomicLong resumed = new AtomicLong();
+    Iterable<Parameter> remaining = filter(toCopy, parameter -> {
+      String entry = CheckpointJournal.copied(parameter.name(), targetName(parameter, prefix, destinationPrefix));
+      if (journal.isDone(entry)) {
+        resumed.incrementAndGet();
+        if (copied != null) {
+          copied.add(parameter.name());
+        }
+        if (verification != null) {
+          verification.record(target, targetName(parameter, prefix, destinationPrefix), parameter);
+        }
+        return false;
+      }
+      return true;
+    });
     if (dryRun) {
-      return performDryRunCopy(toCopy, prefix, destinationPrefix);
+      return performDryRunCopy(remaining, prefix, destinationPrefix, copied);
+    }
+
+    Tally tally = runInParallel(remaining, parameter -> {
+      boolean success = copyParameter(target, parameter, prefix, overwrite);
+      if (success) {
+        journal.record(CheckpointJournal.copied(parameter.name(), targetName(parameter, prefix, destinationPrefix)));
+        if (copied != null) {
+          copied.add(parameter.name());
+        }
+        if (verification != null) {
+          verification.record(target, targetName(parameter, prefix, destinationPrefix), parameter);
+        }
+      }
+      return success;
+    });
+    if (resumed.get() > 0) {
+      log.info(String.format("Skipped %d parameters that the journal shows were already copied", resumed.get()));
+    }
+    if (tally.errors > 0) {
+      log.error(String.format(
+          "Found %d total parameters to copy, but encountered %d errors. The above error log includes the names of the parameters that failed to create",
+          tally.total, tally.errors));
+      return false; // failed to copy all of the parameters
+    }
+
+    log.info(String.format("Copied %d parameters", tally.total));
+    return verification == null || verification.verify() == 0;
+  }
+
+  /**
+   * Moves each parameter as its own unit: once its put succeeds, its source joins the next delete batch, and whichever
+   * worker fills a batch deletes it straight away while the other workers carry on copying. A failed put leaves only
+   * that parameter behind in the source, and at most one partial batch is copied but not yet deleted at any time.
+   */
+  private boolean performMoveHelper(Iterable<Parameter> toMove, String prefix, String destinationPrefix,
+      boolean overwrite, CheckpointJournal journal) {
+    Target target = new Target(Destination.of(destinationPrefix), ssmClient, rateController, destinationPrefix);
+    Verification verification = verify ? new Verification() : null;
+    PendingDeletes deletes = new PendingDeletes(journal, verification == null);
+    AtomicLong resumed = new AtomicLong();
+    Iterable<Parameter> remaining = filter(toMove, parameter -> {
+      String entry = CheckpointJournal.copied(parameter.name(), targetName(parameter, prefix, destinationPrefix));
+      if (journal.isDone(entry)) {
+        // the earlier run copied it, but may not have deleted the source yet
+        resumed.incrementAndGet();
+        if (verification != null) {
+          verification.record(target, targetName(parameter, prefix, destinationPrefix), parameter);
+        }
+        deletes.add(parameter.name());
+        return false;
+      }
+      return true;
+    });
+
+    Tally tally = runInParallel(remaining, parameter -> {
+      boolean success = copyParameter(target, parameter, prefix, overwrite);
+      if (success) {
+        journal.record(CheckpointJournal.copied(parameter.name(), targetName(parameter, prefix, destinationPrefix)));
+        if (verification != null) {
+          verification.record(target, targetName(parameter, prefix, destinationPrefix), parameter);
+        }
+        deletes.add(parameter.name());
+      }
+      return success;
+    });
+    if (verification != null && verification.verify() > 0) {
+      log.error("Not deleting any sources, because the copies above do not match them");
+      return false;
+    }
+    // whatever was copied is deleted, even when other puts or the listing failed
+    long deleteErrors = deletes.flush();
+
+    if (resumed.get() > 0) {
+      log.info(String.format("Skipped %d parameters that the journal shows were already copied", resumed.get()));
+    }
+    if (tally.errors > 0 || deleteErrors > 0) {
+      log.error(String.format(
+          "Found %d total parameters to move, but %d were not copied and %d sources were not deleted. The above error log includes their names; only those parameters remain in the source",
+          tally.total, tally.errors, deleteErrors));
+      return false;
     }
 
-    long errors = toCopy.stream().filter(parameter -> {
-      String resultKey = parameter.name().replace(prefix, destinationPrefix);
-      log.info(String.format("Preparing to copy '%s' -> '%s'", parameter.name(), resultKey));
+    log.info(String.format("Moved %d parameters", tally.total));
+    return true;
+  }
+
+  /**
+   * Applies the action to every item on a bounded pool of workers. Items are pulled from the iterable only as fast as
+   * the workers can take them, so a paged listing is never read further ahead than one page.
+   */
+  private <T> Tally runInParallel(Iterable<T> items, Predicate<T> action) {
+    return runInParallel(items, item -> 1, item -> action.test(item) ? 0 : 1);
+  }
+
+  /**
+   * @param size the number of parameters an item stands for
+   * @param action returns the number of parameters in the item that failed
+   */
+  private <T> Tally runInParallel(Iterable<T> items, ToIntFunction<T> size, ToIntFunction<T> action) {
+    AtomicLong errors = new AtomicLong();
+    long total = 0;
+    try (WorkerPool pool = new WorkerPool(concurrency)) {
+      Iterator<T> iterator = null;
+      try {
+        iterator = items.iterator();
+        while (iterator.hasNext()) {
+          T item = iterator.next();
+          total += size.applyAsInt(item);
+          pool.submit(() -> errors.addAndGet(action.applyAsInt(item)));
+        }
+      } catch (SdkException e) {
+        log.error(String.format("Failed to list the source parameters: %s", e.getMessage()));
+        errors.incrementAndGet();
+      } catch (UncheckedIOException e) {
+        // the snapshot being imported or the plan being applied failed part way through, and says which
+        log.error(e.getMessage());
+        errors.incrementAndGet();
+      } finally {
+        // a listing given up part way stops fetching now, not when the garbage collector gets to it
+        CloseableIterator.closeIfCloseable(iterator);
+      }
+      errors.addAndGet(pool.awaitCompletion());
+    }
+    return new Tally(total, errors.get());
+  }
+
+  /**
+   * Deletes up to {@value #BATCH_SIZE} parameters with a single call.
+   *
+   * @return the number of names in the batch that were not deleted
+   */
+  private int deleteBatch(List<String> names, CheckpointJournal journal) {
+    return deleteBatch(names, journal, null);
+  }
+
+  private int deleteBatch(List<String> names, CheckpointJournal journal, Queue<String> deleted) {
+    if (logItems) {
+      names.forEach(name -> log.info("Preparing to delete '{}'", name));
+    }
+    Set<String> confirmed;
+    try {
+      DeleteParametersRequest deleteRequest = DeleteParametersRequest.builder().names(names).build();
+      DeleteParametersResponse deleteResponse = call(OperationMetrics.Call.DELETE,
+          () -> ssmClient.deleteParameters(deleteRequest));
+      if (!deleteResponse.sdkHttpResponse().isSuccessful()) {
+        names.forEach(name -> log.error("Failed to delete parameter {}", name));
+        names.forEach(name -> failed(ItemResult.Action.DELETE, name, null, "the delete was not successful"));
+        return names.size();
+      }
+      confirmed = new HashSet<>(deleteResponse.deletedParameters());
+    } catch (SdkException e) {
+      names.forEach(name -> log.error("Failed to delete parameter {}: {}", name, e.getMessage()));
+      names.forEach(name -> failed(ItemResult.Action.DELETE, name, null, e.getMessage()));
+      return names.size();
+    }
+
+    int failures = 0;
+    for (String name : names) {
+      if (confirmed.contains(name)) {
+        journal.record(CheckpointJournal.deleted(name));
+        if (deleted != null) {
+          deleted.add(name);
+        }
+        metrics.recordDeleted();
+        results.accept(ItemResult.succeeded(ItemResult.Action.DELETE, name, null));
+        if (logItems) {
+          log.info("Deleted '{}'", name);
+        }
+      } else {
+        // the name came back in InvalidParameters, or not at all
+        log.error("Failed to delete parameter {}", name);
+        failed(ItemResult.Action.DELETE, name, null, "it does not exist");
+        failures++;
+      }
+    }
+    return failures;
+  }
+
+  private boolean copyParameter(Target target, Parameter parameter, String prefix, boolean overwrite) {
+    return putParameter(target, parameter, targetName(parameter, prefix, target.path), overwrite);
+  }
+
+  private boolean putParameter(Target target, Parameter parameter, String name, boolean overwrite) {
+    String resultKey = target.destination.qualify(name);
+    if (logItems) {
+      log.info("Preparing to copy '{}' -> '{}'", parameter.name(), resultKey);
+    }
+    try {
       PutParameterRequest putRequest = PutParameterRequest
           .builder()
-          .name(resultKey)
+          .name(name)
           .value(parameter.value())
           .dataType(parameter.dataType())
           .type(parameter.type())
           .overwrite(overwrite)
           .build();
-      PutParameterResponse putResponse = ssmClient.putParameter(putRequest);
-      boolean failed = !putResponse.sdkHttpResponse().isSuccessful();
-      if (failed) {
-        log.error(String.format("Failed to create parameter %s", resultKey));
-      }
-      return failed;
-    }).count();
-    if (errors > 0) {
-      log.error(String.format(
-          "Found %d total parameters to copy, but encountered %d errors. The above error log includes the names of the parameters that failed to create",
-          toCopy.size(), errors));
-      return false; // failed to copy all of the parameters
+      PutParameterResponse putResponse = call(OperationMetrics.Call.PUT, target.rateController,
+          () -> target.client.putParameter(putRequest));
+      if (putResponse.sdkHttpResponse().isSuccessful()) {
+        metrics.recordCopied();
+        metrics.recordBytesWritten(valueBytes(parameter));
+        results.accept(ItemResult.succeeded(ItemResult.Action.COPY, parameter.name(), resultKey));
+        return true;
+      }
+      log.error("Failed to create parameter {}", resultKey);
+      failed(ItemResult.Action.COPY, parameter.name(), resultKey, "the put was not successful");
+    } catch (SdkException e) {
+      log.error("Failed to create parameter {}: {}", resultKey, e.getMessage());
+      failed(ItemResult.Action.COPY, parameter.name(), resultKey, e.getMessage());
     }
+    return false;
+  }
 
-    return true; // success!
+  private boolean performDryRunCopy(Iterable<Parameter> toCopy, String prefix, String destinationPrefix,
+      Queue<String> copied) {
+    long total = 0;
+    try {
+      for (Parameter parameter : toCopy) {
+        log.info("Would copy '{}' -> '{}'", parameter.name(), targetName(parameter, prefix, destinationPrefix));
+        if (copied != null) {
+          copied.add(parameter.name());
+        }
+        total++;
+      }
+    } catch (SdkException | UncheckedIOException e) {
+      log.error(String.format("Failed to list the source parameters: %s", e.getMessage()));
+      return false;
+    }
+    log.info(String.format("Dry run was selected, so the above %d copy operations were _not_ executed.", total));
+    return true;
   }
 
-  private boolean performDryRunCopy(List<Parameter> toCopy, String prefix, String destinationPrefix) {
-    toCopy.forEach(parameter -> {
-      log.info(String.format("Would copy '%s' -> '%s'", parameter.name(),
-          parameter.name().replace(prefix, destinationPrefix)));
-    });
-    log.info(
-        String.format("Dry run was selected, so the above %d copy operations were _not_ executed.", toCopy.size()));
+  private boolean performDryRunFanOut(Iterable<TargetedParameter> puts, String prefix) {
+    long total = 0;
+    try {
+      for (TargetedParameter put : puts) {
+        log.info("Would copy '{}' -> '{}'", put.parameter.name(),
+            put.target.destination.qualify(targetName(put.parameter, prefix, put.target.path)));
+        total++;
+      }
+    } catch (SdkException e) {
+      log.error(String.format("Failed to list the source parameters: %s", e.getMessage()));
+      return false;
+    }
+    log.info(String.format("Dry run was selected, so the above %d copy operations were _not_ executed.", total));
     return true;
   }
 
-  private boolean performDryRunDelete(List<Parameter> sourceParameters) {
-    sourceParameters.forEach(parameter -> {
-      log.info(String.format("Would delete '%s'", parameter.name()));
-    });
-    log.info(String.format("Dry run was selected, so the above %d delete operations were _not_ executed.",
-        sourceParameters.size()));
+  private boolean performDryRunDelete(Iterable<String> names) {
+    long total = 0;
+    try {
+      for (String name : names) {
+        log.info("Would delete '{}'", name);
+        total++;
+      }
+    } catch (SdkException e) {
+      log.error(String.format("Failed to list the source parameters: %s", e.getMessage()));
+      return false;
+    }
+    log.info(String.format("Dry run was selected, so the above %d delete operations were _not_ executed.", total));
     return true;
   }
 
-  private List<Parameter> compileParameterList(String source) {
-    GetParametersByPathRequest request = GetParametersByPathRequest
+  /**
+   * Lazily pages through every parameter under the source path. Nothing is fetched until the result is iterated, and
+   * each further page is only requested once the previous one has been consumed.
+   */
+  private Iterable<Parameter> listParameters(String source) {
+    if (listConcurrency == 1) {
+      return listByPath(source, true);
+    }
+    // paging by path is one round trip per 10 parameters, strictly in sequence. Names page 50 at a time, and their
+    // values can then be fetched 10 at a time on as many workers as allowed
+    return ParallelListing.of(batches(names(listMetadata(source)), BATCH_SIZE), names -> getParameters(names, true),
+        listConcurrency);
+  }
+
+  /**
+   * Lazily pages through the names, types and versions of every parameter under the source path, without fetching or
+   * decrypting a single value. DescribeParameters returns five times as many parameters per page, but cannot filter on
+   * labels, so a label filter lists by path without decryption instead and drops the ciphertext.
+   */
+  private Iterable<Parameter> listMetadata(String source) {
+    if (filters.stream().anyMatch(filter -> filter.getKey().equals(ParameterFilter.LABEL))) {
+      Iterable<Parameter> parameters = listByPath(source, false);
+      return () -> new Iterator<>() {
+        private final Iterator<Parameter> iterator = parameters.iterator();
+
+        @Override public boolean hasNext() {
+          return iterator.hasNext();
+        }
+
+        @Override public Parameter next() {
+          return iterator.next().toBuilder().value(null).build();
+        }
+      };
+    }
+
+    List<ParameterStringFilter> describeFilters = new ArrayList<>();
+    // the path filter takes the path without its trailing slash, unless it is the root
+    String path = source.length() > 1 && source.endsWith("/") ? source.substring(0, source.length() - 1) : source;
+    describeFilters.add(ParameterStringFilter.builder().key("Path").option("Recursive").values(path).build());
+    filters.forEach(filter -> describeFilters.add(stringFilter(filter)));
+    DescribeParametersRequest request = DescribeParametersRequest
+        .builder()
+        .parameterFilters(describeFilters)
+        .maxResults(DESCRIBE_PAGE_SIZE)
+        .build();
+    return Pages.of(
+        token -> call(OperationMetrics.Call.DESCRIBE,
+            () -> ssmClient.describeParameters(request.toBuilder().nextToken(token).build())),
+        response -> response
+            .parameters()
+            .stream()
+            .map(metadata -> Parameter
+                .builder()
+                .name(metadata.name())
+                .type(metadata.type())
+                .dataType(metadata.dataType())
+                .version(metadata.version())
+                .lastModifiedDate(metadata.lastModifiedDate())
+                .build())
+            .collect(Collectors.toList()), DescribeParametersResponse::nextToken);
+  }
+
+  /**
+   * GetParametersByPath filters on type, key and label, so name filters are applied here as the pages arrive.
+   */
+  private Iterable<Parameter> listByPath(String source, boolean decrypt) {
+    List<ParameterFilter> nameFilters = new ArrayList<>();
+    List<ParameterStringFilter> serverFilters = new ArrayList<>();
+    for (ParameterFilter filter : filters) {
+      if (filter.getKey().equals(ParameterFilter.NAME)) {
+        nameFilters.add(filter);
+      } else {
+        serverFilters.add(stringFilter(filter));
+      }
+    }
+    GetParametersByPathRequest.Builder builder = GetParametersByPathRequest
         .builder()
         .path(source)
         .recursive(true)
-        .withDecryption(true)
-        .build();
-    GetParametersByPathResponse response = ssmClient.getParametersByPath(request);
-    List<Parameter> toCopy = new ArrayList<>(response.parameters());
-    while (response.nextToken() != null && response.nextToken() != "") {
-      request = GetParametersByPathRequest
-          .builder()
-          .nextToken(response.nextToken())
-          .path(source)
-          .recursive(true)
-          .withDecryption(true)
-          .build();
-      response = ssmClient.getParametersByPath(request);
-      toCopy.addAll(response.parameters());
+        .withDecryption(decrypt);
+    if (!serverFilters.isEmpty()) {
+      builder.parameterFilters(serverFilters);
     }
-    return toCopy;
+    GetParametersByPathRequest request = builder.build();
+    Iterable<Parameter> parameters = Pages.of(
+        token -> call(OperationMetrics.Call.LIST,
+            () -> ssmClient.getParametersByPath(request.toBuilder().nextToken(token).build())),
+        response -> {
+          response.parameters().forEach(parameter -> metrics.recordBytesRead(valueBytes(parameter)));
+          return response.parameters();
+        }, GetParametersByPathResponse::nextToken);
+    return nameFilters.isEmpty() ? parameters
+        : filter(parameters, parameter -> nameFilters.stream().allMatch(name -> name.matchesName(parameter.name())));
+  }
+
+  private static ParameterStringFilter stringFilter(ParameterFilter filter) {
+    return ParameterStringFilter
+        .builder()
+        .key(filter.getKey())
+        .option(filter.getOption())
+        .values(filter.getValues())
+        .build();
+  }
+
+  /**
+   * Makes a rate-controlled call to SSM, timing every attempt.
+   */
+  private <T> T call(OperationMetrics.Call kind, Supplier<T> request) {
+    return call(kind, rateController, request);
+  }
+
+  private <T> T call(OperationMetrics.Call kind, RateController rate, Supplier<T> request) {
+    return rate.call(metrics, () -> {
+      long start = System.nanoTime();
+      boolean success = false;
+      try {
+        T response = request.get();
+        success = true;
+        return response;
+      } finally {
+        metrics.recordCall(kind, System.nanoTime() - start, success);
+      }
+    });
+  }
+
+  private static long valueBytes(Parameter parameter) {
+    return parameter.value() == null ? 0 : parameter.value().getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  /**
+   * Lazily skips the items the predicate rejects. The predicate runs on the iterating thread, once per item.
+   */
+  private static <T> Iterable<T> filter(Iterable<T> items, Predicate<T> predicate) {
+    return () -> new CloseableIterator<>() {
+      private final Iterator<T> iterator = items.iterator();
+      private T next;
+
+      @Override public boolean hasNext() {
+        while (next == null && iterator.hasNext()) {
+          T candidate = iterator.next();
+          if (predicate.test(candidate)) {
+            next = candidate;
+          }
+        }
+        return next != null;
+      }
+
+      @Override public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        T result = next;
+        next = null;
+        return result;
+      }
+
+      @Override public void close() {
+        CloseableIterator.closeIfCloseable(iterator);
+      }
+    };
+  }
+
+  /**
+   * Lazily replaces every item with the items the function expands it into, in order.
+   */
+  private static <T, R> Iterable<R> flatMap(Iterable<T> items, Function<T, List<R>> expand) {
+    return () -> new CloseableIterator<>() {
+      private final Iterator<T> iterator = items.iterator();
+      private Iterator<R> current = Collections.emptyIterator();
+
+      @Override public boolean hasNext() {
+        while (!current.hasNext() && iterator.hasNext()) {
+          current = expand.apply(iterator.next()).iterator();
+        }
+        return current.hasNext();
+      }
+
+      @Override public R next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return current.next();
+      }
+
+      @Override public void close() {
+        CloseableIterator.closeIfCloseable(iterator);
+      }
+    };
+  }
+
+  /**
+   * Groups the items into consecutive lists of at most {@code size} elements, pulling from the source only as each
+   * batch is requested.
+   */
+  private static <T> Iterable<List<T>> batches(Iterable<T> items, int size) {
+    return () -> new CloseableIterator<>() {
+      private final Iterator<T> iterator = items.iterator();
+
+      @Override public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override public List<T> next() {
+        if (!iterator.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        List<T> batch = new ArrayList<>(size);
+        while (batch.size() < size && iterator.hasNext()) {
+          batch.add(iterator.next());
+        }
+        return batch;
+      }
+
+      @Override public void close() {
+        CloseableIterator.closeIfCloseable(iterator);
+      }
+    };
+  }
+
+  private static Iterable<String> names(Iterable<Parameter> parameters) {
+    return () -> new CloseableIterator<>() {
+      private final Iterator<Parameter> iterator = parameters.iterator();
+
+      @Override public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override public String next() {
+        return iterator.next().name();
+      }
+
+      @Override public void close() {
+        CloseableIterator.closeIfCloseable(iterator);
+      }
+    };
+  }
+
+  private static String targetName(Parameter parameter, String prefix, String destinationPrefix) {
+    return PathMapper.prefix(prefix, destinationPrefix).map(parameter.name());
   }
 
   private String getPrefix(String source) {
@@ -185,4 +1403,238 @@ public class AWSProvider implements CloudProvider {
     }
     return destination;
   }
+
+  /**
+   * A destination together with the client, rate and counters used to write to it.
+   */
+  private static final class Target {
+    private final Destination destination;
+    private final SsmClient client;
+    private final RateController rateController;
+    private final String path;
+    private final AtomicLong copied = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private Target(Destination destination, SsmClient client, RateController rateController, String path) {
+      this.destination = destination;
+      this.client = client;
+      this.rateController = rateController;
+      this.path = path;
+    }
+  }
+
+  private static final class TargetedParameter {
+    private final Parameter parameter;
+    private final Target target;
+
+    private TargetedParameter(Parameter parameter, Target target) {
+      this.parameter = parameter;
+      this.target = target;
+    }
+
+    private String journalEntry(String prefix) {
+      return CheckpointJournal.copied(parameter.name(),
+          target.destination.qualify(targetName(parameter, prefix, target.path)));
+    }
+  }
+
+  /**
+   * Collects the sources of finished copies and deletes them {@value #BATCH_SIZE} at a time, on the thread that adds
+   * the name completing a batch. Unless it is eager, it holds every name until {@link #flush()} instead.
+   */
+  private final class PendingDeletes {
+    private final CheckpointJournal journal;
+    private final boolean eager;
+    private final AtomicLong errors = new AtomicLong();
+    private List<String> pending = new ArrayList<>(BATCH_SIZE);
+
+    private PendingDeletes(CheckpointJournal journal, boolean eager) {
+      this.journal = journal;
+      this.eager = eager;
+    }
+
+    private void add(String name) {
+      if (journal.isDone(CheckpointJournal.deleted(name))) {
+        return;
+      }
+      List<String> batch = null;
+      synchronized (this) {
+        pending.add(name);
+        if (eager && pending.size() == BATCH_SIZE) {
+          batch = pending;
+          pending = new ArrayList<>(BATCH_SIZE);
+        }
+      }
+      if (batch != null) {
+        errors.addAndGet(deleteBatch(batch, journal));
+      }
+    }
+
+    /**
+     * Deletes whatever is still pending, once every copy has finished.
+     *
+     * @return the number of sources that were not deleted
+     */
+    private long flush() {
+      List<String> held;
+      synchronized (this) {
+        held = pending;
+        pending = new ArrayList<>(BATCH_SIZE);
+      }
+      if (held.size() > BATCH_SIZE) {
+        Tally tally = runInParallel(batches(held, BATCH_SIZE), List::size, batch -> deleteBatch(batch, journal));
+        errors.addAndGet(tally.errors);
+      } else if (!held.isEmpty()) {
+        errors.addAndGet(deleteBatch(held, journal));
+      }
+      return errors.get();
+    }
+  }
+
+  /**
+   * Remembers what every put wrote, as a digest rather than the value, and reads it all back {@value #BATCH_SIZE}
+   * names at a time once the puts are done. Copies an earlier run made are only checked where the source values are at
+   * hand, which is not the case for a plan or rewrite resumed from its journal.
+   */
+  private final class Verification {
+    private final Map<Target, Map<String, Written>> written = new ConcurrentHashMap<>();
+
+    private void record(Target target, String name, Parameter source) {
+      written.computeIfAbsent(target, key -> new ConcurrentHashMap<>()).put(name, new Written(source));
+    }
+
+    /**
+     * Logs every written parameter that is missing or differs from its source.
+     *
+     * @return the number that could not be read back or did not match
+     */
+    private long verify() {
+      long total = 0;
+      long mismatches = 0;
+      for (Map.Entry<Target, Map<String, Written>> entry : written.entrySet()) {
+        Target target = entry.getKey();
+        Map<String, Written> expected = entry.getValue();
+        Tally tally = runInParallel(batches(expected.keySet(), BATCH_SIZE), List::size,
+            names -> verifyBatch(target, names, expected));
+        total += tally.total;
+        mismatches += tally.errors;
+      }
+      if (mismatches > 0) {
+        log.error(String.format(
+            "Read back %d written parameters, but %d do not match their sources. The above error log includes their names",
+            total, mismatches));
+      } else {
+        log.info(String.format("Read back %d written parameters and all of them match their sources", total));
+      }
+      return mismatches;
+    }
+
+    private int verifyBatch(Target target, List<String> names, Map<String, Written> expected) {
+      Map<String, Parameter> actual = new HashMap<>();
+      try {
+        for (Parameter parameter : getParameters(target.client, target.rateController, names, true)) {
+          actual.put(parameter.name(), parameter);
+        }
+      } catch (SdkException e) {
+        for (String name : names) {
+          log.error("Failed to read back '{}': {}", target.destination.qualify(name), e.getMessage());
+          results.accept(ItemResult.failed(ItemResult.Action.VERIFY, expected.get(name).source,
+              target.destination.qualify(name), e.getMessage()));
+        }
+        return names.size();
+      }
+      int mismatches = 0;
+      for (String name : names) {
+        Written written = expected.get(name);
+        String difference = written.difference(actual.get(name));
+        if (difference != null) {
+          log.error("'{}' does not match its source '{}': {}", target.destination.qualify(name), written.source,
+              difference);
+          results.accept(ItemResult.failed(ItemResult.Action.VERIFY, written.source, target.destination.qualify(name),
+              difference));
+          mismatches++;
+        } else {
+          results.accept(ItemResult.succeeded(ItemResult.Action.VERIFY, written.source,
+              target.destination.qualify(name)));
+        }
+      }
+      return mismatches;
+    }
+  }
+
+  /**
+   * What a put wrote: everything {@link ParameterDigest} covers, with the value kept only as its digest.
+   */
+  private static final class Written {
+    // SSM stores a put without a data type as text
+    private static final String DEFAULT_DATA_TYPE = "text";
+
+    private final String source;
+    private final String type;
+    private final String dataType;
+    private final byte[] valueDigest;
+
+    private Written(Parameter parameter) {
+      this.source = parameter.name();
+      this.type = parameter.typeAsString();
+      this.dataType = parameter.dataType() == null ? DEFAULT_DATA_TYPE : parameter.dataType();
+      this.valueDigest = ParameterDigest.ofValue(parameter);
+    }
+
+    /**
+     * @return how the parameter read back differs, or {@code null} if it matches
+     */
+    private String difference(Parameter actual) {
+      if (actual == null) {
+        return "it does not exist";
+      }
+      if (!type.equals(actual.typeAsString())) {
+        return String.format("its type is %s rather than %s", actual.typeAsString(), type);
+      }
+      String actualDataType = actual.dataType() == null ? DEFAULT_DATA_TYPE : actual.dataType();
+      if (!dataType.equals(actualDataType)) {
+        return String.format("its data type is %s rather than %s", actualDataType, dataType);
+      }
+      if (!Arrays.equals(valueDigest, ParameterDigest.ofValue(actual))) {
+        return "its value differs";
+      }
+      return null;
+    }
+  }
+
+  /**
+   * What the watch index remembers of a source parameter. The version alone is not enough: a parameter that is deleted
+   * and created again starts over at version 1, but its modification date moves on.
+   */
+  private static final class Revision {
+    private final long version;
+    private final Instant modified;
+
+    private Revision(Parameter parameter) {
+      this.version = parameter.version() == null ? 0 : parameter.version();
+      this.modified = parameter.lastModifiedDate();
+    }
+
+    @Override public boolean equals(Object other) {
+      if (!(other instanceof Revision)) {
+        return false;
+      }
+      Revision revision = (Revision) other;
+      return version == revision.version && Objects.equals(modified, revision.modified);
+    }
+
+    @Override public int hashCode() {
+      return Objects.hash(version, modified);
+    }
+  }
+
+  private static final class Tally {
+    private final long total;
+    private final long errors;
+
+    private Tally(long total, long errors) {
+      this.total = total;
+      this.errors = errors;
+    }
+  }
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider.aws;
+
+import java.util.Iterator;
+
+/**
+ * An iterator that may keep threads working for it, as a {@link ParallelListing} does. Closing it stops them, whether or
+ * not it was read to the end, and the lazy wrappers in {@link AWSProvider} pass a close on to the iterator they wrap.
+ */
+interface CloseableIterator<T> extends Iterator<T>, AutoCloseable {
+  @Override void close();
+
+  /**
+   * Closes the iterator if it is a {@code CloseableIterator}, and does nothing otherwise.
+   */
+  static void closeIfCloseable(Iterator<?> iterator) {
+    if (iterator instanceof CloseableIterator) {
+      ((CloseableIterator<?>) iterator).close();
+    }
+  }
+}
@@ -16,13 +16,36 @@
 
 package org.nerdsofprey.secrets.provider.aws;
 
+import org.nerdsofprey.secrets.provider.Destination;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.RetryUtils;
+import software.amazon.awssdk.core.retry.conditions.AndRetryCondition;
+import software.amazon.awssdk.core.retry.conditions.RetryCondition;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.profiles.ProfileFile;
+import software.amazon.awssdk.profiles.ProfileProperty;
+import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.ssm.SsmClient;
+import software.amazon.awssdk.services.ssm.SsmClientBuilder;
+import software.amazon.awssdk.services.sts.StsClient;
+import software.amazon.awssdk.services.sts.StsClientBuilder;
+import software.amazon.awssdk.services.sts.auth.StsAssumeRoleCredentialsProvider;
+import software.amazon.awssdk.services.sts.model.AssumeRoleRequest;
+
+import java.time.Duration;
 
 /**
  * The module containing all dependencies required by the {@link AWSProvider}.
  */
 public class DependencyFactory {
+  // how long a pooled connection may sit idle before it is closed; SSM's endpoints drop idle connections after a minute
+  private static final Duration IDLE_TIMEOUT = Duration.ofSeconds(50);
 
   private DependencyFactory() {
   }
@@ -31,6 +54,106 @@ public class DependencyFactory {
    * @return an instance of SsmClient
    */
   public static SsmClient ssmClient() {
-    return SsmClient.builder().httpClientBuilder(UrlConnectionHttpClient.builder()).build();
+    return ssmClient(Transport.URL_CONNECTION, 1);
+  }
+
+  /**
+   * @param concurrency the most calls that will be in flight at once, counting those that list the source; connection
+   *     pools are sized to match
+   * @return an instance of SsmClient that talks to SSM over the given transport
+   */
+  public static SsmClient ssmClient(Transport transport, int concurrency) {
+    return SsmClient
+        .builder()
+        .httpClientBuilder(httpClient(transport, concurrency))
+        .overrideConfiguration(configuration -> configuration.retryPolicy(retryPolicy()))
+        .build();
+  }
+
+  /**
+   * @return an instance of SsmClient for a destination in another region or account. A profile supplies credentials
+   *     and, unless a region is given, the region; a role is assumed on top of the profile's or the default
+   *     credentials.
+   */
+  public static SsmClient ssmClient(Transport transport, int concurrency, Destination destination) {
+    SsmClientBuilder builder = SsmClient
+        .builder()
+        .httpClientBuilder(httpClient(transport, concurrency))
+        .overrideConfiguration(configuration -> configuration.retryPolicy(retryPolicy()));
+
+    Region region = region(destination);
+    if (region != null) {
+      builder.region(region);
+    }
+
+    AwsCredentialsProvider credentials = destination.getProfile() == null ? null
+        : ProfileCredentialsProvider.create(destination.getProfile());
+    if (destination.getRole() != null) {
+      credentials = assumeRole(destination.getRole(), region,
+          credentials == null ? DefaultCredentialsProvider.create() : credentials);
+    }
+    if (credentials != null) {
+      builder.credentialsProvider(credentials);
+    }
+    return builder.build();
+  }
+
+  private static Region region(Destination destination) {
+    if (destination.getRegion() != null) {
+      return Region.of(destination.getRegion());
+    }
+    if (destination.getProfile() != null) {
+      return ProfileFile
+          .defaultProfileFile()
+          .profile(destination.getProfile())
+          .flatMap(profile -> profile.property(ProfileProperty.REGION))
+          .map(Region::of)
+          .orElse(null);
+    }
+    return null;
+  }
+
+  private static AwsCredentialsProvider assumeRole(String role, Region region, AwsCredentialsProvider credentials) {
+    StsClientBuilder sts = StsClient
+        .builder()
+        .httpClientBuilder(UrlConnectionHttpClient.builder())
+        .credentialsProvider(credentials);
+    if (region != null) {
+      sts.region(region);
+    }
+    return StsAssumeRoleCredentialsProvider
+        .builder()
+        .stsClient(sts.build())
+        .refreshRequest(AssumeRoleRequest.builder().roleArn(role).roleSessionName("ssm-cp").build())
+        .build();
+  }
+
+  private static SdkHttpClient.Builder<?> httpClient(Transport transport, int concurrency) {
+    switch (transport) {
+      case APACHE:
+        return ApacheHttpClient
+            .builder()
+            .maxConnections(concurrency)
+            .connectionMaxIdleTime(IDLE_TIMEOUT)
+            .useIdleConnectionReaper(true)
+            .tcpKeepAlive(true);
+      case URL_CONNECTION:
+      default:
+        // the JDK's keep-alive cache is shared by the whole process and sized only by the http.maxConnections
+        // property, so there is nothing to size per client
+        return UrlConnectionHttpClient.builder();
+    }
+  }
+
+  /**
+   * The SDK's default retries, minus throttling: {@link AWSProvider} paces and retries throttled calls itself, and it
+   * can only slow down if it gets to see them.
+   */
+  private static RetryPolicy retryPolicy() {
+    return RetryPolicy
+        .builder(RetryMode.defaultRetryMode())
+        .retryCondition(AndRetryCondition.create(RetryCondition.defaultRetryCondition(),
+            context -> !RetryUtils.isThrottlingException(context.exception())))
+        .build();
   }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider.aws;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Flattens a token-paged SSM listing into a lazy iterable. Each page is fetched only once the previous one has been
+ * consumed, and every iteration starts the listing over from the first page.
+ */
+final class Pages {
+
+  private Pages() {
+  }
+
+  /**
+   * @param fetch requests the page for the given token, which is {@code null} for the first page
+   */
+  static <R, T> Iterable<T> of(Function<String, R> fetch, Function<R, List<T>> items, Function<R, String> nextToken) {
+    return () -> new Iterator<>() {
+      private Iterator<T> page = Collections.emptyIterator();
+      private String token;
+      private boolean lastPage;
+
+      @Override public boolean hasNext() {
+        while (!page.hasNext() && !lastPage) {
+          R response = fetch.apply(token);
+          page = items.apply(response).iterator();
+          token = nextToken.apply(response);
+          lastPage = token == null || token.isEmpty();
+        }
+        return page.hasNext();
+      }
+
+      @Override public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return page.next();
+      }
+    };
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider.aws;
+
+import org.nerdsofprey.secrets.provider.WorkerPool;
+
+import java.lang.ref.Cleaner;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Fetches the batches of a listing on several workers at once and merges what they return into one lazy iterable, in
+ * the order the fetches finish. A producer thread walks the batches while the workers fetch them. Finished batches
+ * queue for the consumer, {@code parallelism} at most, and a worker that finishes while the queue is full waits with
+ * its batch, so up to twice {@code parallelism} batches can be fetched ahead of the consumer. A failure in the producer
+ * or in any fetch is rethrown to the consumer, and stops the rest. The iterator is a {@link CloseableIterator}, and a
+ * consumer that stops iterating part way closes it to stop the producer and its workers. One that never does stops them
+ * once the iterator is garbage collected.
+ */
+final class ParallelListing {
+  private static final Object END = new Object();
+  private static final Cleaner CLEANER = Cleaner.create();
+
+  private ParallelListing() {
+  }
+
+  /**
+   * @param fetch turns one batch into its items; it runs on the workers and may throw
+   */
+  static <B, T> Iterable<T> of(Iterable<B> batches, Function<B, List<T>> fetch, int parallelism) {
+    return () -> new Merged<>(new Listing<>(batches, fetch, parallelism));
+  }
+
+  /**
+   * The consumer's side. The producer and workers only ever see the {@link Listing}, so nothing but the consumer keeps
+   * this reachable, and collecting it cancels the listing if it was not closed first.
+   */
+  private static final class Merged<T> implements CloseableIterator<T> {
+    private final Listing<?, T> listing;
+    private Iterator<T> page = Collections.emptyIterator();
+    private boolean started;
+    private boolean ended;
+
+    private Merged(Listing<?, T> listing) {
+      this.listing = listing;
+      CLEANER.register(this, listing::cancel);
+    }
+
+    @Override public boolean hasNext() {
+      if (!started) {
+        started = true;
+        Thread producer = new Thread(listing::produce, "listing");
+        producer.setDaemon(true);
+        producer.start();
+      }
+      while (!page.hasNext() && !ended) {
+        Object result = listing.take();
+        if (result == END) {
+          ended = true;
+        } else if (result instanceof RuntimeException) {
+          listing.cancel();
+          ended = true;
+          throw (RuntimeException) result;
+        } else {
+          @SuppressWarnings("unchecked") List<T> items = (List<T>) result;
+          page = items.iterator();
+        }
+      }
+      return page.hasNext();
+    }
+
+    @Override public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return page.next();
+    }
+
+    @Override public void close() {
+      listing.cancel();
+      page = Collections.emptyIterator();
+      ended = true;
+    }
+  }
+
+  private static final class Listing<B, T> {
+    private final Iterable<B> batches;
+    private final Function<B, List<T>> fetch;
+    private final int parallelism;
+    private final BlockingQueue<Object> results;
+    private volatile boolean cancelled;
+
+    private Listing(Iterable<B> batches, Function<B, List<T>> fetch, int parallelism) {
+      this.batches = batches;
+      this.fetch = fetch;
+      this.parallelism = parallelism;
+      this.results = new ArrayBlockingQueue<>(parallelism);
+    }
+
+    private void cancel() {
+      cancelled = true;
+    }
+
+    private void produce() {
+      try (WorkerPool pool = new WorkerPool(parallelism)) {
+        try {
+          for (B batch : batches) {
+            if (cancelled) {
+              return;
+            }
+            pool.submit(() -> {
+              if (cancelled) {
+                return;
+              }
+              Object result;
+              try {
+                result = fetch.apply(batch);
+              } catch (RuntimeException e) {
+                result = e;
+              }
+              put(result);
+            });
+          }
+        } catch (RuntimeException e) {
+          pool.awaitCompletion();
+          put(e);
+          return;
+        }
+        pool.awaitCompletion();
+        put(END);
+      }
+    }
+
+    private void put(Object result) {
+      try {
+        while (!cancelled && !results.offer(result, 100, TimeUnit.MILLISECONDS)) {
+          // the consumer is behind; wait for it unless it has given up
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private Object take() {
+      try {
+        return results.take();
+      } catch (InterruptedException e) {
+        cancelled = true;
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while waiting for the listing", e);
+      }
+    }
+  }
+}
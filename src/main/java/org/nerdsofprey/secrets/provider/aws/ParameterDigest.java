@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider.aws;
+
+import software.amazon.awssdk.services.ssm.model.Parameter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A SHA-256 digest over everything a put would write: the value, type and data type. Two parameters with equal digests
+ * can be treated as identical without keeping either decrypted value around.
+ */
+final class ParameterDigest {
+
+  private ParameterDigest() {
+  }
+
+  static byte[] of(Parameter parameter) {
+    MessageDigest digest = sha256();
+    update(digest, parameter.typeAsString());
+    update(digest, parameter.dataType());
+    update(digest, parameter.value());
+    return digest.digest();
+  }
+
+  /**
+   * A digest of the value alone, for comparing values when the type and data type are compared separately.
+   */
+  static byte[] ofValue(Parameter parameter) {
+    MessageDigest digest = sha256();
+    update(digest, parameter.value());
+    return digest.digest();
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  private static void update(MessageDigest digest, String field) {
+    if (field == null) {
+      digest.update((byte) 0);
+      return;
+    }
+    byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+    // length-prefix each field so that ("ab", "c") and ("a", "bc") never collide
+    digest.update((byte) 1);
+    digest.update(new byte[] { (byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16), (byte) (bytes.length >>> 8),
+        (byte) bytes.length });
+    digest.update(bytes);
+  }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider.aws;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The operations a dry run resolved, saved so that a later run can apply exactly those without listing the source
+ * again. Values are never written; each entry keeps the source version and a {@link ParameterDigest} instead, so an
+ * item that changed after the plan was made can be caught before it is written.
+ *
+ * <pre>
+ * header: "SSMCPPLN", version (1 byte), operation (1 byte), overwrite (1 byte), source, destination
+ * entry:  1 (1 byte), source name, target name, source version (long), digest (32 bytes)
+ * end:    0 (1 byte), entry count (long)
+ * </pre>
+ *
+ * Strings are a length (int) followed by UTF-8 bytes, and numbers are big-endian.
+ */
+final class PlanFile {
+  private static final byte[] MAGIC = "SSMCPPLN".getBytes(StandardCharsets.US_ASCII);
+  private static final byte VERSION = 1;
+  private static final int DIGEST_BYTES = 32;
+
+  enum Operation {
+    COPY, MOVE, DELETE
+  }
+
+  private PlanFile() {
+  }
+
+  static final class Entry {
+    final String source;
+    final String target;
+    final long version;
+    final byte[] digest;
+
+    Entry(String source, String target, long version, byte[] digest) {
+      this.source = source;
+      this.target = target;
+      this.version = version;
+      this.digest = digest;
+    }
+  }
+
+  /**
+   * Writes to a temporary file beside the plan, which only replaces it once {@link #finish()} succeeds.
+   */
+  static final class Writer implements AutoCloseable {
+    private final Path path;
+    private final Path temp;
+    private final DataOutputStream out;
+    private long count;
+    private boolean finished;
+
+    Writer(Path path, Operation operation, boolean overwrite, String source, String destination) {
+      this.path = path;
+      Path target = path.toAbsolutePath();
+      try {
+        this.temp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+      } catch (IOException e) {
+        throw new UncheckedIOException(String.format("Unable to create the plan %s", path), e);
+      }
+      try {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)));
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(operation.ordinal());
+        out.writeBoolean(overwrite);
+        writeString(out, source);
+        writeString(out, destination);
+      } catch (IOException e) {
+        deleteQuietly(temp);
+        throw new UncheckedIOException(String.format("Unable to create the plan %s", path), e);
+      }
+    }
+
+    void write(Entry entry) {
+      try {
+        out.writeByte(1);
+        writeString(out, entry.source);
+        writeString(out, entry.target);
+        out.writeLong(entry.version);
+        out.write(entry.digest);
+        count++;
+      } catch (IOException e) {
+        throw new UncheckedIOException(String.format("Unable to write to the plan %s", path), e);
+      }
+    }
+
+    /**
+     * Marks the plan complete and moves it over the path in one step; a plan closed without it never reaches the path,
+     * and one without the end marker cannot be applied.
+     */
+    void finish() {
+      try {
+        out.writeByte(0);
+        out.writeLong(count);
+        out.close();
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        finished = true;
+      } catch (IOException e) {
+        throw new UncheckedIOException(String.format("Unable to write to the plan %s", path), e);
+      }
+    }
+
+    long getCount() {
+      return count;
+    }
+
+    @Override public void close() {
+      try {
+        out.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(String.format("Unable to close the plan %s", path), e);
+      } finally {
+        if (!finished) {
+          deleteQuietly(temp);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the header and checks every entry against the end marker up front, so a plan that was cut short or altered
+   * is refused before anything is applied. The entries are read again as they are iterated, which can only happen once.
+   */
+  static final class Reader implements Iterable<Entry>, AutoCloseable {
+    private final Path path;
+    private final DataInputStream in;
+    private final Operation operation;
+    private final boolean overwrite;
+    private final String source;
+    private final String destination;
+    private final long count;
+    private boolean iterated;
+
+    Reader(Path path) {
+      this.path = path;
+      try {
+        this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+      } catch (IOException e) {
+        throw new UncheckedIOException(String.format("Unable to read the plan %s: %s", path, e.getMessage()), e);
+      }
+      try {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC) || in.readByte() != VERSION) {
+          throw new IOException("Not an ssm-cp plan, or one written by another version");
+        }
+        int ordinal = in.readByte();
+        if (ordinal < 0 || ordinal >= Operation.values().length) {
+          throw new IOException(String.format("Unknown operation %d", ordinal));
+        }
+        this.operation = Operation.values()[ordinal];
+        this.overwrite = in.readBoolean();
+        this.source = readString(in);
+        this.destination = readString(in);
+        this.count = countEntries(path);
+      } catch (EOFException e) {
+        close();
+        throw new UncheckedIOException(String.format("The plan %s was cut short, so none of it was applied", path), e);
+      } catch (IOException e) {
+        close();
+        throw new UncheckedIOException(String.format("Unable to read the plan %s: %s", path, e.getMessage()), e);
+      }
+    }
+
+    Operation getOperation() {
+      return operation;
+    }
+
+    boolean isOverwrite() {
+      return overwrite;
+    }
+
+    String getSource() {
+      return source;
+    }
+
+    String getDestination() {
+      return destination;
+    }
+
+    /**
+     * @return the number of entries, which the end marker records
+     */
+    long getCount() {
+      return count;
+    }
+
+    @Override public Iterator<Entry> iterator() {
+      if (iterated) {
+        throw new IllegalStateException("A plan can only be read once");
+      }
+      iterated = true;
+      return new Iterator<>() {
+        private Entry next;
+        private long read;
+        private boolean ended;
+
+        @Override public boolean hasNext() {
+          if (next == null && !ended) {
+            next = readEntry();
+          }
+          return next != null;
+        }
+
+        @Override public Entry next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          Entry entry = next;
+          next = null;
+          return entry;
+        }
+
+        private Entry readEntry() {
+          try {
+            Entry entry = PlanFile.readEntry(in);
+            if (entry == null) {
+              long count = in.readLong();
+              if (count != read) {
+                throw new IOException(String.format("The plan records %d entries, but holds %d", count, read));
+              }
+              ended = true;
+              return null;
+            }
+            read++;
+            return entry;
+          } catch (EOFException e) {
+            throw new UncheckedIOException(String.format("The plan %s was cut short", path), e);
+          } catch (IOException e) {
+            throw new UncheckedIOException(String.format("The plan %s is corrupt: %s", path, e.getMessage()), e);
+          }
+        }
+      };
+    }
+
+    @Override public void close() {
+      try {
+        in.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(String.format("Unable to close the plan %s", path), e);
+      }
+    }
+  }
+
+  /**
+   * Reads the plan through once, keeping nothing.
+   *
+   * @return the number of entries, once it matches the end marker's count
+   * @throws EOFException if the plan ends before its end marker
+   */
+  private static long countEntries(Path path) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      // the magic, version, operation and overwrite flag, then the source and destination
+      in.readFully(new byte[MAGIC.length + 3]);
+      readString(in);
+      readString(in);
+      long read = 0;
+      while (readEntry(in) != null) {
+        read++;
+      }
+      long count = in.readLong();
+      if (count != read) {
+        throw new IOException(String.format("The plan records %d entries, but holds %d", count, read));
+      }
+      if (in.read() != -1) {
+        throw new IOException("The plan continues past its end marker");
+      }
+      return count;
+    }
+  }
+
+  /**
+   * @return the next entry, or {@code null} at the end marker, leaving its count to be read
+   */
+  private static Entry readEntry(DataInputStream in) throws IOException {
+    if (in.readByte() == 0) {
+      return null;
+    }
+    String source = readString(in);
+    String target = readString(in);
+    long version = in.readLong();
+    byte[] digest = new byte[DIGEST_BYTES];
+    in.readFully(digest);
+    return new Entry(source, target, version, digest);
+  }
+
+  private static void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      // the temporary file is only left behind; the plan itself is untouched
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > 1 << 20) {
+      throw new IOException(String.format("Implausible string length %d", length));
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider.aws;
+
+import org.nerdsofprey.secrets.provider.OperationMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.retry.RetryUtils;
+import software.amazon.awssdk.services.ssm.model.TooManyUpdatesException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Paces every SSM call through a token bucket whose rate adapts to throttling. The rate starts at the ceiling; each
+ * throttle halves it (at most once per cooldown, so one burst of rejections counts once) and each successful call
+ * nudges it back up by a small additive step. Throttled calls are retried after a jittered exponential backoff instead
+ * of being reported as failures.
+ */
+class RateController {
+  private final static Logger log = LoggerFactory.getLogger(RateController.class);
+
+  private static final double MIN_TPS = 0.5;
+  // roughly one extra call per second for every second spent at full rate without a throttle
+  private static final double ADDITIVE_STEP = 1;
+  private static final double DECREASE_FACTOR = 0.5;
+  private static final long DECREASE_COOLDOWN_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+  private static final int MAX_ATTEMPTS = 8;
+  private static final long BASE_BACKOFF_MILLIS = 100;
+  private static final long MAX_BACKOFF_MILLIS = 20_000;
+
+  private final double maxTps;
+  private double rate;
+  private double tokens;
+  private long lastRefill;
+  private long lastDecrease;
+
+  RateController(double maxTps) {
+    this.maxTps = maxTps;
+    this.rate = maxTps;
+    this.tokens = 1;
+    this.lastRefill = System.nanoTime();
+    this.lastDecrease = lastRefill - DECREASE_COOLDOWN_NANOS;
+  }
+
+  /**
+   * Waits for a token, then performs the call, retrying it while SSM responds with a throttle.
+   *
+   * @param metrics receives the throttles and retries, so operations sharing this controller are still counted apart
+   * @throws SdkException the last throttle once every attempt has been used, or any other error immediately
+   */
+  <T> T call(OperationMetrics metrics, Supplier<T> request) {
+    for (int attempt = 1; ; attempt++) {
+      acquire();
+      try {
+        T result = request.get();
+        onSuccess();
+        return result;
+      } catch (SdkException e) {
+        if (!isThrottle(e) || attempt >= MAX_ATTEMPTS) {
+          throw e;
+        }
+        onThrottle(metrics);
+        metrics.recordRetry();
+        long backoff = ThreadLocalRandom.current()
+            .nextLong(Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << attempt) + 1);
+        log.debug("Throttled on attempt {}, retrying in {} ms", attempt, backoff);
+        sleep(TimeUnit.MILLISECONDS.toNanos(backoff));
+      }
+    }
+  }
+
+  synchronized double currentRate() {
+    return rate;
+  }
+
+  private void acquire() {
+    sleep(reserve());
+  }
+
+  /**
+   * Takes a token, going into debt when the bucket is empty.
+   *
+   * @return how long the caller must wait before its token is actually available
+   */
+  private synchronized long reserve() {
+    long now = System.nanoTime();
+    double capacity = Math.max(1, rate);
+    tokens = Math.min(capacity, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+    lastRefill = now;
+    tokens -= 1;
+    if (tokens >= 0) {
+      return 0;
+    }
+    return (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+  }
+
+  private synchronized void onSuccess() {
+    rate = Math.min(maxTps, rate + ADDITIVE_STEP / rate);
+  }
+
+  private synchronized void onThrottle(OperationMetrics metrics) {
+    metrics.recordThrottle();
+    long now = System.nanoTime();
+    if (now - lastDecrease >= DECREASE_COOLDOWN_NANOS) {
+      rate = Math.max(MIN_TPS, rate * DECREASE_FACTOR);
+      lastDecrease = now;
+      if (log.isDebugEnabled()) {
+        log.debug(String.format("Throttled by SSM, reducing the request rate to %.1f calls per second", rate));
+      }
+    }
+  }
+
+  static boolean isThrottle(SdkException e) {
+    return e instanceof TooManyUpdatesException || RetryUtils.isThrottlingException(e);
+  }
+
+  private static void sleep(long nanos) {
+    if (nanos <= 0) {
+      return;
+    }
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting to call SSM", e);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider.aws;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * The HTTP clients {@link DependencyFactory} can build an SsmClient on. Both are synchronous, because every call is made
+ * on a worker thread that waits for its response, submitted operations included.
+ */
+public enum Transport {
+  /**
+   * The JDK's HttpURLConnection: the smallest footprint and the fastest start, with the JDK's keep-alive cache.
+   */
+  URL_CONNECTION("url-connection"),
+  /**
+   * Apache HttpClient with a connection pool sized to the concurrency, for long or highly parallel runs.
+   */
+  APACHE("apache");
+
+  private final String value;
+
+  Transport(String value) {
+    this.value = value;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * @throws IllegalArgumentException if no transport has that name
+   */
+  public static Transport fromValue(String value) {
+    return Arrays
+        .stream(values())
+        .filter(transport -> transport.value.equals(value))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException(String.format("Unknown transport '%s'; expected one of %s",
+            value, Arrays.stream(values()).map(Transport::getValue).collect(Collectors.joining(", ")))));
+  }
+}
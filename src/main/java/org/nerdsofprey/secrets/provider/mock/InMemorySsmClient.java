@@ -0,0 +1,399 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider.mock;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.services.ssm.SsmClient;
+import software.amazon.awssdk.services.ssm.model.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A parameter store held entirely in memory, behind the same {@link SsmClient} calls the AWS provider makes. Listing
+ * pages through a sorted map the way SSM does, puts honour overwrite and bump versions, and deletes report missing
+ * names. Latency, throttling and failures can be injected to rehearse large runs offline.
+ */
+public class InMemorySsmClient implements SsmClient {
+  // the most results SSM returns in one page, and the most names it accepts in one batch call
+  private static final int MAX_RESULTS = 10;
+  // the most results DescribeParameters returns in one page
+  private static final int MAX_DESCRIBE_RESULTS = 50;
+  private static final SdkHttpResponse OK = SdkHttpResponse.builder().statusCode(200).build();
+
+  private final ConcurrentNavigableMap<String, Parameter> parameters = new ConcurrentSkipListMap<>();
+  private long latencyMillis;
+  private double throttleRate;
+  private double failureRate;
+  private String failurePrefix;
+
+  /**
+   * @param latencyMillis how long every call waits before it is answered
+   */
+  public InMemorySsmClient latency(long latencyMillis) {
+    this.latencyMillis = latencyMillis;
+    return this;
+  }
+
+  /**
+   * @param throttleRate the fraction of calls, between 0 and 1, rejected with a ThrottlingException
+   */
+  public InMemorySsmClient throttleRate(double throttleRate) {
+    this.throttleRate = throttleRate;
+    return this;
+  }
+
+  /**
+   * @param failureRate the fraction of calls, between 0 and 1, that fail with an internal server error
+   */
+  public InMemorySsmClient failureRate(double failureRate) {
+    this.failureRate = failureRate;
+    return this;
+  }
+
+  /**
+   * @param failurePrefix every call that touches a name or path under this prefix fails
+   */
+  public InMemorySsmClient failurePrefix(String failurePrefix) {
+    this.failurePrefix = failurePrefix;
+    return this;
+  }
+
+  /**
+   * Loads parameters from a file with one {@code name<TAB>type<TAB>value} line per parameter. Blank lines and lines
+   * starting with {@code #} are ignored.
+   */
+  public InMemorySsmClient seed(Path file) {
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      int lineNumber = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (line.isBlank() || line.startsWith("#")) {
+          continue;
+        }
+        String[] fields = line.split("\t", 3);
+        if (fields.length != 3) {
+          throw new IllegalArgumentException(
+              String.format("%s:%d should be name, type and value separated by tabs", file, lineNumber));
+        }
+        seed(fields[0], ParameterType.fromValue(fields[1]), fields[2]);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Unable to read the seed file %s", file), e);
+    }
+    return this;
+  }
+
+  public InMemorySsmClient seed(String name, ParameterType type, String value) {
+    store(name, type, "text", value);
+    return this;
+  }
+
+  public int size() {
+    return parameters.size();
+  }
+
+  public Parameter get(String name) {
+    return parameters.get(name);
+  }
+
+  @Override public GetParametersByPathResponse getParametersByPath(GetParametersByPathRequest request) {
+    String path = request.path().endsWith("/") ? request.path() : request.path() + "/";
+    simulate(path);
+    int limit = request.maxResults() == null ? MAX_RESULTS : Math.min(request.maxResults(), MAX_RESULTS);
+    boolean recursive = Boolean.TRUE.equals(request.recursive());
+    boolean decrypt = Boolean.TRUE.equals(request.withDecryption());
+
+    ConcurrentNavigableMap<String, Parameter> subtree = parameters.subMap(path, true, path + Character.MAX_VALUE, false);
+    if (request.nextToken() != null) {
+      subtree = subtree.tailMap(request.nextToken(), false);
+    }
+
+    for (ParameterStringFilter filter : request.parameterFilters()) {
+      if (!filter.key().equals("Type") && !filter.key().equals("KeyId") && !filter.key().equals("Label")) {
+        throw error(SsmException.builder(), 400, "ValidationException",
+            String.format("The filter key %s is not valid for GetParametersByPath", filter.key()));
+      }
+    }
+
+    List<Parameter> page = new ArrayList<>(limit);
+    String last = null;
+    Iterator<Parameter> iterator = subtree.values().iterator();
+    while (page.size() < limit && iterator.hasNext()) {
+      Parameter parameter = iterator.next();
+      if ((recursive || parameter.name().indexOf('/', path.length()) < 0) && matches(parameter,
+          request.parameterFilters())) {
+        page.add(decrypt ? parameter : encrypted(parameter));
+        last = parameter.name();
+      }
+    }
+
+    GetParametersByPathResponse.Builder response = GetParametersByPathResponse.builder().parameters(page);
+    if (last != null && hasMore(subtree.tailMap(last, false), path, recursive)) {
+      response.nextToken(last);
+    }
+    return (GetParametersByPathResponse) response.sdkHttpResponse(OK).build();
+  }
+
+  /**
+   * Supports the Path, Name and Type filters, and pages up to 50 parameters at a time.
+   */
+  @Override public DescribeParametersResponse describeParameters(DescribeParametersRequest request) {
+    List<ParameterStringFilter> filters = new ArrayList<>();
+    String path = null;
+    boolean recursive = false;
+    for (ParameterStringFilter filter : request.parameterFilters()) {
+      if (filter.key().equals("Path")) {
+        path = filter.values().get(0).endsWith("/") ? filter.values().get(0) : filter.values().get(0) + "/";
+        recursive = "Recursive".equals(filter.option());
+      } else if (filter.key().equals("Label")) {
+        throw error(SsmException.builder(), 400, "ValidationException",
+            "The filter key Label is not valid for DescribeParameters");
+      } else {
+        filters.add(filter);
+      }
+    }
+    simulate(path == null ? "/" : path);
+    int limit = request.maxResults() == null ? MAX_DESCRIBE_RESULTS
+        : Math.min(request.maxResults(), MAX_DESCRIBE_RESULTS);
+
+    ConcurrentNavigableMap<String, Parameter> candidates = path == null ? parameters
+        : parameters.subMap(path, true, path + Character.MAX_VALUE, false);
+    if (request.nextToken() != null) {
+      candidates = candidates.tailMap(request.nextToken(), false);
+    }
+
+    List<ParameterMetadata> page = new ArrayList<>(limit);
+    String last = null;
+    Iterator<Parameter> iterator = candidates.values().iterator();
+    while (page.size() < limit && iterator.hasNext()) {
+      Parameter parameter = iterator.next();
+      if ((path == null || recursive || parameter.name().indexOf('/', path.length()) < 0) && matches(parameter,
+          filters)) {
+        page.add(ParameterMetadata
+            .builder()
+            .name(parameter.name())
+            .type(parameter.type())
+            .dataType(parameter.dataType())
+            .version(parameter.version())
+            .lastModifiedDate(parameter.lastModifiedDate())
+            .tier(ParameterTier.STANDARD)
+            .build());
+        last = parameter.name();
+      }
+    }
+
+    DescribeParametersResponse.Builder response = DescribeParametersResponse.builder().parameters(page);
+    if (last != null && iterator.hasNext()) {
+      response.nextToken(last);
+    }
+    return (DescribeParametersResponse) response.sdkHttpResponse(OK).build();
+  }
+
+  @Override public GetParametersResponse getParameters(GetParametersRequest request) {
+    checkBatch(request.names());
+    request.names().forEach(this::simulate);
+    boolean decrypt = Boolean.TRUE.equals(request.withDecryption());
+    List<Parameter> found = new ArrayList<>();
+    List<String> invalid = new ArrayList<>();
+    for (String name : request.names()) {
+      Parameter parameter = parameters.get(name);
+      if (parameter == null) {
+        invalid.add(name);
+      } else {
+        found.add(decrypt ? parameter : encrypted(parameter));
+      }
+    }
+    return (GetParametersResponse) GetParametersResponse
+        .builder()
+        .parameters(found)
+        .invalidParameters(invalid)
+        .sdkHttpResponse(OK)
+        .build();
+  }
+
+  @Override public PutParameterResponse putParameter(PutParameterRequest request) {
+    simulate(request.name());
+    if (request.value() == null) {
+      throw error(SsmException.builder(), 400, "ValidationException",
+          String.format("A value is required for %s", request.name()));
+    }
+    Parameter stored = parameters.compute(request.name(), (name, existing) -> {
+      if (existing != null && !Boolean.TRUE.equals(request.overwrite())) {
+        throw error(ParameterAlreadyExistsException.builder(), 400, "ParameterAlreadyExists",
+            String.format("The parameter %s already exists", name));
+      }
+      ParameterType type = request.type() != null ? request.type()
+          : existing != null ? existing.type() : ParameterType.STRING;
+      String dataType = request.dataType() != null ? request.dataType() : "text";
+      return parameter(name, type, dataType, request.value(), existing == null ? 1 : existing.version() + 1);
+    });
+    return (PutParameterResponse) PutParameterResponse
+        .builder()
+        .version(stored.version())
+        .tier(ParameterTier.STANDARD)
+        .sdkHttpResponse(OK)
+        .build();
+  }
+
+  @Override public DeleteParameterResponse deleteParameter(DeleteParameterRequest request) {
+    simulate(request.name());
+    if (parameters.remove(request.name()) == null) {
+      throw error(ParameterNotFoundException.builder(), 400, "ParameterNotFound",
+          String.format("Parameter %s not found", request.name()));
+    }
+    return (DeleteParameterResponse) DeleteParameterResponse.builder().sdkHttpResponse(OK).build();
+  }
+
+  @Override public DeleteParametersResponse deleteParameters(DeleteParametersRequest request) {
+    checkBatch(request.names());
+    request.names().forEach(this::simulate);
+    List<String> deleted = new ArrayList<>();
+    List<String> invalid = new ArrayList<>();
+    for (String name : request.names()) {
+      (parameters.remove(name) != null ? deleted : invalid).add(name);
+    }
+    return (DeleteParametersResponse) DeleteParametersResponse
+        .builder()
+        .deletedParameters(deleted)
+        .invalidParameters(invalid)
+        .sdkHttpResponse(OK)
+        .build();
+  }
+
+  @Override public String serviceName() {
+    return SERVICE_NAME;
+  }
+
+  @Override public void close() {
+  }
+
+  private void store(String name, ParameterType type, String dataType, String value) {
+    parameters.compute(name,
+        (key, existing) -> parameter(key, type, dataType, value, existing == null ? 1 : existing.version() + 1));
+  }
+
+  /**
+   * The store keeps no labels or KMS keys, so label and key filters match nothing.
+   */
+  private static boolean matches(Parameter parameter, List<ParameterStringFilter> filters) {
+    for (ParameterStringFilter filter : filters) {
+      boolean match;
+      switch (filter.key()) {
+        case "Type":
+          match = filter.values().contains(parameter.typeAsString());
+          break;
+        case "Name":
+          String option = filter.option() == null ? "Equals" : filter.option();
+          match = filter.values().stream().anyMatch(value -> option.equals("BeginsWith")
+              ? parameter.name().startsWith(value)
+              : option.equals("Contains") ? parameter.name().contains(value) : parameter.name().equals(value));
+          break;
+        default:
+          match = false;
+      }
+      if (!match) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean hasMore(Map<String, Parameter> rest, String path, boolean recursive) {
+    return recursive ? !rest.isEmpty()
+        : rest.keySet().stream().anyMatch(name -> name.indexOf('/', path.length()) < 0);
+  }
+
+  private static Parameter parameter(String name, ParameterType type, String dataType, String value, long version) {
+    return Parameter
+        .builder()
+        .name(name)
+        .type(type)
+        .dataType(dataType)
+        .value(value)
+        .version(version)
+        .lastModifiedDate(Instant.now())
+        .arn(String.format("arn:aws:ssm:local:000000000000:parameter%s", name))
+        .build();
+  }
+
+  /**
+   * SecureString values come back as ciphertext when decryption is not requested.
+   */
+  private static Parameter encrypted(Parameter parameter) {
+    if (parameter.type() != ParameterType.SECURE_STRING) {
+      return parameter;
+    }
+    return parameter
+        .toBuilder()
+        .value(Base64.getEncoder().encodeToString(parameter.value().getBytes(StandardCharsets.UTF_8)))
+        .build();
+  }
+
+  private static void checkBatch(List<String> names) {
+    if (names.isEmpty() || names.size() > MAX_RESULTS) {
+      throw error(SsmException.builder(), 400, "ValidationException",
+          String.format("Between 1 and %d names are accepted per call, got %d", MAX_RESULTS, names.size()));
+    }
+  }
+
+  /**
+   * Applies the configured latency, then throttles or fails the call if the dice or the failure prefix say so.
+   */
+  private void simulate(String name) {
+    if (latencyMillis > 0) {
+      try {
+        TimeUnit.MILLISECONDS.sleep(latencyMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted during simulated latency", e);
+      }
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    if (throttleRate > 0 && random.nextDouble() < throttleRate) {
+      throw error(SsmException.builder(), 400, "ThrottlingException", "Rate exceeded");
+    }
+    if ((failureRate > 0 && random.nextDouble() < failureRate) || (failurePrefix != null && name.startsWith(
+        failurePrefix))) {
+      throw error(InternalServerErrorException.builder(), 500, "InternalServerError",
+          String.format("Simulated failure for %s", name));
+    }
+  }
+
+  private static SsmException error(SsmException.Builder builder, int status, String code, String message) {
+    return (SsmException) builder
+        .statusCode(status)
+        .message(message)
+        .awsErrorDetails(AwsErrorDetails.builder().errorCode(code).errorMessage(message).serviceName("SSM").build())
+        .build();
+  }
+}
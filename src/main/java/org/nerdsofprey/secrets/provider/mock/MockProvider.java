@@ -15,21 +15,96 @@
  */
 package org.nerdsofprey.secrets.provider.mock;
 
+import org.nerdsofprey.secrets.provider.AsyncCloudProvider;
 import org.nerdsofprey.secrets.provider.CloudProvider;
+import org.nerdsofprey.secrets.provider.Destination;
+import org.nerdsofprey.secrets.provider.ItemResult;
+import org.nerdsofprey.secrets.provider.OperationMetrics;
+import org.nerdsofprey.secrets.provider.OperationReport;
+import org.nerdsofprey.secrets.provider.PathMapper;
+import org.nerdsofprey.secrets.provider.ProviderOptions;
+import org.nerdsofprey.secrets.provider.aws.AWSProvider;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Predicate;
+
+/**
+ * Runs the real AWS provider logic against an {@link InMemorySsmClient}, so copies, moves and deletes can be rehearsed
+ * and measured without a network. Anything under {@value #AUTOFAIL_PREFIX} fails, which is handy for exercising the
+ * error paths.
+ */
+public class MockProvider implements CloudProvider, AsyncCloudProvider {
+  public static final String AUTOFAIL_PREFIX = "/autofail/";
+
+  private final InMemorySsmClient store;
+  private final AWSProvider delegate;
+
+  public MockProvider() {
+    this(new InMemorySsmClient(), new ProviderOptions());
+  }
+
+  public MockProvider(InMemorySsmClient store, ProviderOptions options) {
+    this.store = store.failurePrefix(AUTOFAIL_PREFIX);
+    // every destination, whatever its region or account, lands in the same store
+    this.delegate = new AWSProvider(store, options, destination -> store);
+  }
+
+  public InMemorySsmClient getStore() {
+    return store;
+  }
 
-public class MockProvider implements CloudProvider {
   @Override
   public boolean performCopy(String source, String destination, boolean overwrite, boolean dryRun) {
-    return !source.equals("/autofail/");
+    return delegate.performCopy(source, destination, overwrite, dryRun);
+  }
+
+  @Override
+  public boolean performCopy(String source, List<Destination> destinations, boolean overwrite, boolean dryRun) {
+    return delegate.performCopy(source, destinations, overwrite, dryRun);
   }
 
   @Override
   public boolean performDelete(String source, boolean dryRun) {
-    return true;
+    return delegate.performDelete(source, dryRun);
   }
 
   @Override
   public boolean performMove(String source, String destination, boolean overwrite, boolean dryRun) {
-    return true;
+    return delegate.performMove(source, destination, overwrite, dryRun);
+  }
+
+  @Override
+  public boolean performSync(String source, String destination, boolean prune, boolean dryRun) {
+    return delegate.performSync(source, destination, prune, dryRun);
+  }
+
+  @Override
+  public CompletableFuture<OperationReport> submit(Predicate<CloudProvider> operation,
+      Flow.Subscriber<? super ItemResult> items) {
+    return delegate.submit(operation, items);
+  }
+
+  @Override
+  public boolean performWatch(String source, String destination, boolean prune, Duration interval, long cycles) {
+    return delegate.performWatch(source, destination, prune, interval, cycles);
+  }
+
+  @Override
+  public boolean performRewrite(String source, PathMapper mapper, boolean overwrite, boolean move, boolean dryRun) {
+    return delegate.performRewrite(source, mapper, overwrite, move, dryRun);
+  }
+
+  @Override
+  public boolean performApply(Path plan) {
+    return delegate.performApply(plan);
+  }
+
+  @Override
+  public OperationMetrics getMetrics() {
+    return delegate.getMetrics();
   }
 }
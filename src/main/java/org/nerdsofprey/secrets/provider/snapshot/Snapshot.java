@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider.snapshot;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+
+/**
+ * The layout shared by {@link SnapshotWriter} and {@link SnapshotReader}. All numbers are big-endian.
+ *
+ * <pre>
+ * header:  "SSMCPSNP", version (1 byte), flags (1 byte; 1 = encrypted),
+ *          [salt (16 bytes), PBKDF2 iterations (int)] when encrypted,
+ *          source prefix length (int), source prefix (UTF-8)
+ * frame:   payload length (int), parameter count (int), payload
+ * payload: the frame's parameters deflated, then, when encrypted, AES-GCM sealed as nonce (12 bytes) + ciphertext,
+ *          with the frame's index and count as associated data so frames cannot be reordered or swapped
+ * record:  name, type, data type and value, each as length (int) + UTF-8 bytes
+ * end:     payload length 0, count 0, total parameter count (long)
+ * </pre>
+ *
+ * A file without the end frame was cut short, and is rejected rather than restored in part. So is one whose lengths,
+ * counts or key iterations fall outside what the writer produces.
+ */
+public final class Snapshot {
+  /**
+   * Locations with this prefix name a snapshot file rather than an SSM path.
+   */
+  public static final String SCHEME = "file://";
+
+  static final byte[] MAGIC = "SSMCPSNP".getBytes(StandardCharsets.US_ASCII);
+  static final byte VERSION = 1;
+  static final byte ENCRYPTED = 1;
+  static final int SALT_BYTES = 16;
+  static final int NONCE_BYTES = 12;
+  static final int ITERATIONS = 600_000;
+  // a header asking for more is corrupt or hostile, and would tie up the reader deriving the key
+  static final int MAX_ITERATIONS = 10 * ITERATIONS;
+  static final int TAG_BYTES = 16;
+  // SSM values are at most 8 KB, so a record string far beyond that can only come from a corrupt frame
+  static final int MAX_STRING_BYTES = 64 * 1024;
+
+  private Snapshot() {
+  }
+
+  public static boolean isSnapshot(String location) {
+    return location != null && location.startsWith(SCHEME);
+  }
+
+  /**
+   * @return the file a {@code file://} location names; {@code file:///abs/path} is absolute, {@code file://rel/path}
+   *     relative
+   */
+  public static Path pathOf(String location) {
+    return Paths.get(location.substring(SCHEME.length()));
+  }
+
+  static SecretKey deriveKey(char[] passphrase, byte[] salt, int iterations) throws GeneralSecurityException {
+    byte[] key = SecretKeyFactory
+        .getInstance("PBKDF2WithHmacSHA256")
+        .generateSecret(new PBEKeySpec(passphrase, salt, iterations, 256))
+        .getEncoded();
+    return new SecretKeySpec(key, "AES");
+  }
+
+  static Cipher cipher(int mode, SecretKey key, byte[] nonce, long frame, int count) throws GeneralSecurityException {
+    Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+    cipher.init(mode, key, new GCMParameterSpec(TAG_BYTES * Byte.SIZE, nonce));
+    cipher.updateAAD(ByteBuffer.allocate(Long.BYTES + Integer.BYTES).putLong(frame).putInt(count).array());
+    return cipher;
+  }
+}
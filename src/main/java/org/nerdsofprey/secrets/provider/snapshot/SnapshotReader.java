@@ -0,0 +1,261 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider.snapshot;
+
+import software.amazon.awssdk.services.ssm.model.Parameter;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads a snapshot through a memory mapping, decoding one frame at a time as it is iterated. Opening fails with an
+ * {@link UncheckedIOException} if the file was cut short or its frames disagree with its end frame, and iterating does
+ * if a frame is corrupt or was sealed with a different passphrase. See {@link Snapshot} for the layout.
+ */
+public class SnapshotReader implements Iterable<Parameter>, AutoCloseable {
+  private final Path path;
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final SecretKey key;
+  private final String prefix;
+  private final int firstFrame;
+
+  private SnapshotReader(Path path, FileChannel channel, MappedByteBuffer buffer, SecretKey key, String prefix) {
+    this.path = path;
+    this.channel = channel;
+    this.buffer = buffer;
+    this.key = key;
+    this.prefix = prefix;
+    this.firstFrame = buffer.position();
+  }
+
+  /**
+   * @param passphrase the passphrase an encrypted snapshot was written with; ignored for an unencrypted one
+   */
+  public static SnapshotReader open(Path path, char[] passphrase) {
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(path, StandardOpenOption.READ);
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Snapshots larger than 2 GB are not supported");
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      byte[] magic = new byte[Snapshot.MAGIC.length];
+      buffer.get(magic);
+      if (!Arrays.equals(magic, Snapshot.MAGIC)) {
+        throw new IOException("Not an ssm-cp snapshot");
+      }
+      byte version = buffer.get();
+      if (version != Snapshot.VERSION) {
+        throw new IOException(String.format("Unsupported snapshot version %d", version));
+      }
+      SecretKey key = null;
+      if ((buffer.get() & Snapshot.ENCRYPTED) != 0) {
+        if (passphrase == null) {
+          throw new IOException("The snapshot is encrypted, but no passphrase was given");
+        }
+        byte[] salt = new byte[Snapshot.SALT_BYTES];
+        buffer.get(salt);
+        int iterations = buffer.getInt();
+        if (iterations < 1 || iterations > Snapshot.MAX_ITERATIONS) {
+          throw new IOException(String.format("The snapshot header asks for %d key iterations", iterations));
+        }
+        key = Snapshot.deriveKey(passphrase, salt, iterations);
+      }
+      String prefix = readString(buffer);
+      checkFrames(buffer.duplicate());
+      return new SnapshotReader(path, channel, buffer, key, prefix);
+    } catch (IOException | BufferUnderflowException | GeneralSecurityException e) {
+      closeQuietly(channel);
+      throw new UncheckedIOException(String.format("Unable to open the snapshot %s: %s", path, e.getMessage()),
+          e instanceof IOException ? (IOException) e : new IOException(e));
+    }
+  }
+
+  /**
+   * @return the source prefix the snapshot was exported from
+   */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  @Override public Iterator<Parameter> iterator() {
+    ByteBuffer frames = buffer.duplicate().position(firstFrame);
+    return new Iterator<>() {
+      private final Deque<Parameter> decoded = new ArrayDeque<>();
+      private long frame;
+      private long read;
+      private boolean ended;
+
+      @Override public boolean hasNext() {
+        while (decoded.isEmpty() && !ended) {
+          readFrame();
+        }
+        return !decoded.isEmpty();
+      }
+
+      @Override public Parameter next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return decoded.poll();
+      }
+
+      private void readFrame() {
+        try {
+          int length = frames.getInt();
+          int count = frames.getInt();
+          if (length == 0 && count == 0) {
+            long total = frames.getLong();
+            if (total != read) {
+              throw new IOException(String.format("The snapshot records %d parameters, but holds %d", total, read));
+            }
+            ended = true;
+            return;
+          }
+          if (count <= 0) {
+            throw new IOException(String.format("Frame %d holds %d parameters", frame, count));
+          }
+          if (length < 0 || length > frames.remaining()) {
+            throw new IOException(String.format("Frame %d runs past the end of the file", frame));
+          }
+          if (key != null && length < Snapshot.NONCE_BYTES + Snapshot.TAG_BYTES) {
+            throw new IOException(String.format("Frame %d is too short to be sealed", frame));
+          }
+          byte[] payload = new byte[length];
+          frames.get(payload);
+          if (key != null) {
+            payload = Snapshot
+                .cipher(Cipher.DECRYPT_MODE, key, Arrays.copyOf(payload, Snapshot.NONCE_BYTES), frame, count)
+                .doFinal(payload, Snapshot.NONCE_BYTES, payload.length - Snapshot.NONCE_BYTES);
+          }
+          try (DataInputStream records = new DataInputStream(
+              new InflaterInputStream(new ByteArrayInputStream(payload)))) {
+            for (int i = 0; i < count; i++) {
+              decoded.add(Parameter
+                  .builder()
+                  .name(readString(records))
+                  .type(readString(records))
+                  .dataType(emptyToNull(readString(records)))
+                  .value(readString(records))
+                  .build());
+            }
+          }
+          frame++;
+          read += count;
+        } catch (BufferUnderflowException e) {
+          throw new UncheckedIOException(String.format("The snapshot %s was cut short", path), new IOException(e));
+        } catch (AEADBadTagException e) {
+          throw new UncheckedIOException(
+              String.format("Unable to decrypt the snapshot %s; the passphrase is wrong or the file was altered", path),
+              new IOException(e));
+        } catch (GeneralSecurityException e) {
+          throw new UncheckedIOException(String.format("Unable to decrypt the snapshot %s", path), new IOException(e));
+        } catch (IOException e) {
+          throw new UncheckedIOException(String.format("The snapshot %s is corrupt: %s", path, e.getMessage()), e);
+        }
+      }
+    };
+  }
+
+  @Override public void close() {
+    closeQuietly(channel);
+  }
+
+  /**
+   * Walks the frame headers without decoding a frame, so a snapshot that was cut short, or whose end frame disagrees
+   * with its frames, is refused before a single parameter is read from it.
+   */
+  private static void checkFrames(ByteBuffer frames) throws IOException {
+    long total = 0;
+    for (long frame = 0; ; frame++) {
+      if (frames.remaining() < 2 * Integer.BYTES) {
+        throw new IOException("The snapshot was cut short before its end frame");
+      }
+      int length = frames.getInt();
+      int count = frames.getInt();
+      if (length == 0 && count == 0) {
+        break;
+      }
+      if (count <= 0 || length < 0 || length > frames.remaining()) {
+        throw new IOException(String.format("Frame %d runs past the end of the file", frame));
+      }
+      frames.position(frames.position() + length);
+      total += count;
+    }
+    if (frames.remaining() != Long.BYTES) {
+      throw new IOException("The snapshot's end frame is cut short or followed by other data");
+    }
+    long recorded = frames.getLong();
+    if (recorded != total) {
+      throw new IOException(String.format("The snapshot records %d parameters, but holds %d", recorded, total));
+    }
+  }
+
+  private static String readString(ByteBuffer buffer) throws IOException {
+    int length = buffer.getInt();
+    if (length < 0 || length > buffer.remaining()) {
+      throw new IOException("A string runs past the end of the file");
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > Snapshot.MAX_STRING_BYTES) {
+      throw new IOException(String.format("A record holds a string of %d bytes", length));
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static String emptyToNull(String value) {
+    return value.isEmpty() ? null : value;
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // nothing was written, so there is nothing to lose
+      }
+    }
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider.snapshot;
+
+import software.amazon.awssdk.services.ssm.model.Parameter;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Streams parameters into a snapshot file a frame at a time, so only one frame is ever held in memory. The frames go to
+ * a temporary file beside the snapshot, which only replaces it once {@link #finish()} succeeds. See {@link Snapshot}
+ * for the layout.
+ */
+public class SnapshotWriter implements AutoCloseable {
+  // parameters per frame; a frame of typical parameters deflates to a few kilobytes
+  private static final int FRAME_PARAMETERS = 256;
+
+  private final Path path;
+  private final Path temp;
+  private final DataOutputStream out;
+  private final SecretKey key;
+  private final SecureRandom random = new SecureRandom();
+  private final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+  private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+  private DataOutputStream records;
+  private int count;
+  private long frames;
+  private long total;
+  private boolean finished;
+
+  private SnapshotWriter(Path path, Path temp, DataOutputStream out, SecretKey key) {
+    this.path = path;
+    this.temp = temp;
+    this.out = out;
+    this.key = key;
+    startFrame();
+  }
+
+  /**
+   * Starts a snapshot that will create or replace the file, readable and writable by its owner only. Until it is
+   * finished, an existing snapshot at the path is left as it was.
+   *
+   * @param prefix the source prefix the parameters were listed under, so an import can map them to a new one
+   * @param passphrase encrypts every frame with a key derived from it, or {@code null} to leave the file unencrypted
+   */
+  public static SnapshotWriter create(Path path, String prefix, char[] passphrase) {
+    Path temp = null;
+    try {
+      Path target = path.toAbsolutePath();
+      temp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+      restrictToOwner(temp);
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)));
+      out.write(Snapshot.MAGIC);
+      out.writeByte(Snapshot.VERSION);
+      SecretKey key = null;
+      if (passphrase != null) {
+        byte[] salt = new byte[Snapshot.SALT_BYTES];
+        new SecureRandom().nextBytes(salt);
+        key = Snapshot.deriveKey(passphrase, salt, Snapshot.ITERATIONS);
+        out.writeByte(Snapshot.ENCRYPTED);
+        out.write(salt);
+        out.writeInt(Snapshot.ITERATIONS);
+      } else {
+        out.writeByte(0);
+      }
+      writeString(out, prefix);
+      return new SnapshotWriter(path, temp, out, key);
+    } catch (IOException e) {
+      deleteQuietly(temp);
+      throw new UncheckedIOException(String.format("Unable to create the snapshot %s", path), e);
+    } catch (GeneralSecurityException e) {
+      deleteQuietly(temp);
+      throw new IllegalStateException("Unable to derive the snapshot key", e);
+    }
+  }
+
+  public void write(Parameter parameter) {
+    try {
+      writeString(records, parameter.name());
+      writeString(records, parameter.typeAsString());
+      writeString(records, parameter.dataType());
+      writeString(records, parameter.value());
+      if (++count == FRAME_PARAMETERS) {
+        flushFrame();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Unable to write to the snapshot %s", path), e);
+    }
+  }
+
+  /**
+   * Writes the end frame that marks the snapshot complete, then moves it over the path in one step. A snapshot closed
+   * without finishing never reaches the path, and {@link SnapshotReader} rejects one without the end frame, so a failed
+   * export can never be mistaken for a whole one.
+   */
+  public void finish() {
+    try {
+      flushFrame();
+      out.writeInt(0);
+      out.writeInt(0);
+      out.writeLong(total);
+      out.close();
+      Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+      finished = true;
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Unable to write to the snapshot %s", path), e);
+    }
+  }
+
+  public long getCount() {
+    return total + count;
+  }
+
+  public boolean isFinished() {
+    return finished;
+  }
+
+  @Override public void close() {
+    deflater.end();
+    try {
+      out.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Unable to close the snapshot %s", path), e);
+    } finally {
+      if (!finished) {
+        deleteQuietly(temp);
+      }
+    }
+  }
+
+  private void startFrame() {
+    frame.reset();
+    deflater.reset();
+    records = new DataOutputStream(new DeflaterOutputStream(frame, deflater));
+    count = 0;
+  }
+
+  private void flushFrame() throws IOException {
+    if (count == 0) {
+      return;
+    }
+    records.close();
+    byte[] payload = frame.toByteArray();
+    if (key != null) {
+      byte[] nonce = new byte[Snapshot.NONCE_BYTES];
+      random.nextBytes(nonce);
+      try {
+        byte[] sealed = Snapshot.cipher(Cipher.ENCRYPT_MODE, key, nonce, frames, count).doFinal(payload);
+        payload = new byte[nonce.length + sealed.length];
+        System.arraycopy(nonce, 0, payload, 0, nonce.length);
+        System.arraycopy(sealed, 0, payload, nonce.length, sealed.length);
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException("Unable to encrypt a snapshot frame", e);
+      }
+    }
+    out.writeInt(payload.length);
+    out.writeInt(count);
+    out.write(payload);
+    frames++;
+    total += count;
+    startFrame();
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static void deleteQuietly(Path file) {
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      // the temporary file is only left behind; the snapshot itself is untouched
+    }
+  }
+
+  private static void restrictToOwner(Path path) throws IOException {
+    try {
+      Files.setPosixFilePermissions(path, EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE));
+    } catch (UnsupportedOperationException e) {
+      // not a POSIX file system; the file keeps its default permissions
+    }
+  }
+}
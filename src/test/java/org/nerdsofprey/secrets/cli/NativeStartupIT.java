@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.cli;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run by the native profile against the binary it just built. A dry-run copy only needs names, so through the mock
+ * provider it makes exactly one DescribeParameters call and exits. Its wall time therefore bounds the time to the first
+ * request: startup, option parsing and client setup, but not the GetParametersByPath listing a real copy begins with.
+ */
+public class NativeStartupIT {
+  private static final int RUNS = 7;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void shouldReachTheFirstRequestWithinTheBudget() throws IOException, InterruptedException {
+    String image = System.getProperty("native.image");
+    Assumptions.assumeTrue(image != null && Files.isExecutable(Paths.get(image)), "No native image to measure");
+    long budgetMillis = Long.getLong("native.startup.budget.millis", 150);
+
+    Path seed = directory.resolve("seed.tsv");
+    Files.write(seed, "/startup/source/key\tString\tvalue\n".getBytes(StandardCharsets.UTF_8));
+
+    long[] millis = new long[RUNS];
+    for (int i = 0; i < RUNS; i++) {
+      long start = System.nanoTime();
+      Process process = new ProcessBuilder(image, "--mock-provider", "--mock-seed", seed.toString(), "--dry-run",
+          "--source", "/startup/source/", "--destination", "/startup/destination/")
+          .redirectErrorStream(true)
+          .redirectOutput(directory.resolve("run-" + i + ".log").toFile())
+          .start();
+      Assertions.assertTrue(process.waitFor(30, TimeUnit.SECONDS), "The native image did not exit");
+      millis[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      Assertions.assertEquals(0, process.exitValue(), "The native image failed; see run-" + i + ".log");
+    }
+
+    Arrays.sort(millis);
+    long median = millis[RUNS / 2];
+    Assertions.assertTrue(median <= budgetMillis, String.format(
+        "Median time to the first request was %d ms, over the %d ms budget (runs: %s)", median, budgetMillis,
+        Arrays.toString(millis)));
+  }
+}
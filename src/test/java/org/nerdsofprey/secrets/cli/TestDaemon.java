@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.cli;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nerdsofprey.secrets.provider.mock.InMemorySsmClient;
+import org.nerdsofprey.secrets.provider.mock.MockProvider;
+import software.amazon.awssdk.services.ssm.model.ParameterType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TestDaemon {
+
+  @TempDir
+  Path directory;
+
+  private final InMemorySsmClient store = new InMemorySsmClient();
+  private Path socket;
+  private Daemon daemon;
+
+  @BeforeEach
+  public void startDaemon() throws IOException {
+    socket = directory.resolve("ssm-cp.sock");
+    daemon = new Daemon(socket, options -> new MockProvider(store, options));
+    Thread server = new Thread(() -> {
+      try {
+        daemon.serve();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    server.setDaemon(true);
+    server.start();
+  }
+
+  @AfterEach
+  public void stopDaemon() throws IOException {
+    daemon.close();
+    Assertions.assertFalse(Files.exists(socket));
+  }
+
+  @Test
+  public void shouldRunJobsAgainstTheSharedClient() throws IOException {
+    store.seed("/dev/one", ParameterType.STRING, "1").seed("/dev/two", ParameterType.STRING, "2");
+    List<String> output = new ArrayList<>();
+
+    int copy = DaemonClient.submit(socket, directory,
+        List.of("--source", "/dev/", "--destination", "/prod/", "--stats-file", "stats.json"), output::add);
+    int delete = DaemonClient.submit(socket, directory, List.of("--source", "/dev/", "--delete"), output::add);
+
+    Assertions.assertEquals(0, copy);
+    Assertions.assertEquals(0, delete);
+    Assertions.assertEquals("1", store.get("/prod/one").value());
+    Assertions.assertNull(store.get("/dev/one"));
+    Assertions.assertTrue(output.contains("COPY '/dev/one' -> '/prod/one'"));
+    Assertions.assertTrue(output.contains("DELETE '/dev/two'"));
+    Assertions.assertTrue(output.contains("The operation completed successfully."));
+    Assertions.assertTrue(Files.exists(directory.resolve("stats.json")));
+  }
+
+  @Test
+  public void shouldOnlyLetItsOwnerConnect() throws IOException {
+    Assertions.assertEquals(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE),
+        Files.getPosixFilePermissions(socket));
+    try (Stream<Path> files = Files.list(directory)) {
+      Assertions.assertEquals(List.of(socket), files.collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void shouldReportFailuresAndInvalidJobs() throws IOException {
+    List<String> output = new ArrayList<>();
+
+    Assertions.assertEquals(1, DaemonClient.submit(socket, directory,
+        List.of("--source", "/autofail/", "--destination", "/prod/"), output::add));
+    Assertions.assertEquals(1, DaemonClient.submit(socket, directory, List.of("--source", "/dev/", "--move"),
+        output::add));
+    Assertions.assertTrue(output.contains("For copy or move operations, you must declare a valid destination"));
+  }
+
+  @Test
+  public void shouldRefuseToShareALiveSocket() {
+    Assertions.assertThrows(IOException.class, () -> new Daemon(socket, options -> new MockProvider()));
+  }
+}
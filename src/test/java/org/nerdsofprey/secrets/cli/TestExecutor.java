@@ -17,6 +17,12 @@ package org.nerdsofprey.secrets.cli;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class TestExecutor {
 
@@ -79,4 +85,197 @@ public class TestExecutor {
     Assertions.assertEquals("For copy or move operations, you must declare a valid destination",
         exception.getMessage());
   }
+
+  @Test
+  public void testMockExecutorParallelCopy() {
+    Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--destination", "/some/destination/",
+        "--concurrency", "8" });
+  }
+
+  @Test
+  public void testFailsOnInvalidConcurrency() {
+    Exception exception = Assertions.assertThrows(RuntimeException.class, () -> {
+      Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--delete", "--concurrency", "0" });
+    });
+
+    Assertions.assertEquals("Concurrency must be at least 1", exception.getMessage());
+  }
+
+  @Test
+  public void testMockExecutorSync() {
+    Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--destination", "/some/destination/",
+        "--sync", "--prune" });
+  }
+
+  @Test
+  public void testFailsOnSyncAndMove() {
+    Exception exception = Assertions.assertThrows(RuntimeException.class, () -> {
+      Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--destination", "/some/destination/",
+          "--sync", "--move" });
+    });
+
+    Assertions.assertEquals("Sync may not be declared together with move or delete", exception.getMessage());
+  }
+
+  @Test
+  public void testFailsOnPruneWithoutSync() {
+    Exception exception = Assertions.assertThrows(RuntimeException.class, () -> {
+      Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--destination", "/some/destination/",
+          "--prune" });
+    });
+
+    Assertions.assertEquals("Prune may only be declared together with sync or watch", exception.getMessage());
+  }
+
+  @Test
+  public void testFailsOnJournalAndResume() {
+    Exception exception = Assertions.assertThrows(RuntimeException.class, () -> {
+      Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--delete", "--journal", "a",
+          "--resume", "b" });
+    });
+
+    Assertions.assertEquals(
+        "Journal and resume may not be declared together; --resume keeps appending to the journal it reads",
+        exception.getMessage());
+  }
+
+  @Test
+  public void testWritesStatsFile(@TempDir Path directory) throws IOException {
+    Path stats = directory.resolve("stats.json");
+    Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--destination", "/some/destination/",
+        "--stats-file", stats.toString() });
+
+    String json = new String(Files.readAllBytes(stats), StandardCharsets.UTF_8);
+    Assertions.assertTrue(json.contains("\"itemsPerSecond\""));
+    Assertions.assertTrue(json.contains("\"put\""));
+  }
+
+  @Test
+  public void testFailsOnUnknownTransport() {
+    Exception exception = Assertions.assertThrows(RuntimeException.class, () -> {
+      Executor.main(new String[] { "--source", "/some/source/", "--delete", "--transport", "netty" });
+    });
+
+    Assertions.assertEquals("Unknown transport 'netty'; expected one of url-connection, apache", exception.getMessage());
+  }
+
+  @Test
+  public void testMockExecutorFanOutCopy() {
+    Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--destination", "/some/destination/",
+        "--destination", "region=eu-west-1,profile=prod,path=/some/replica/" });
+  }
+
+  @Test
+  public void testFailsOnMoveToSeveralDestinations() {
+    Exception exception = Assertions.assertThrows(RuntimeException.class, () -> {
+      Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--move", "--destination", "/a/",
+          "--destination", "/b/" });
+    });
+
+    Assertions.assertEquals(
+        "Several destinations, or destinations in another region or account, may only be declared for a copy",
+        exception.getMessage());
+  }
+
+  @Test
+  public void testFailsOnPlanOutWithoutDryRun() {
+    Exception exception = Assertions.assertThrows(RuntimeException.class, () -> {
+      Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--delete", "--plan-out", "plan" });
+    });
+
+    Assertions.assertEquals("Plan out may only be declared together with dry run", exception.getMessage());
+  }
+
+  @Test
+  public void testFailsOnApplyWithSource() {
+    Exception exception = Assertions.assertThrows(RuntimeException.class, () -> {
+      Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--apply", "plan" });
+    });
+
+    Assertions.assertTrue(exception.getMessage().startsWith("Apply runs the saved plan as it stands"));
+  }
+
+  @Test
+  public void testMockExecutorFilteredDelete() {
+    Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--delete", "--filter",
+        "Type=SecureString,String", "--filter", "Name:Contains=key" });
+  }
+
+  @Test
+  public void testFailsOnUnknownFilterKey() {
+    Exception exception = Assertions.assertThrows(RuntimeException.class, () -> {
+      Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--delete", "--filter", "Tier=Advanced" });
+    });
+
+    Assertions.assertEquals(
+        "The filter 'Tier=Advanced' has an unknown key 'Tier'; expected one of Type, KeyId, Label, Name",
+        exception.getMessage());
+  }
+
+  @Test
+  public void testMockExecutorRewrite(@TempDir Path directory) throws IOException {
+    Path rules = directory.resolve("rules");
+    Files.write(rules, "prefix /some/source/ /some/destination/\n".getBytes(StandardCharsets.UTF_8));
+
+    Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--rules", rules.toString(),
+        "--move" });
+  }
+
+  @Test
+  public void testFailsOnRulesAndDestination() {
+    Exception exception = Assertions.assertThrows(RuntimeException.class, () -> {
+      Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--destination", "/a/", "--rules",
+          "rules" });
+    });
+
+    Assertions.assertTrue(exception.getMessage().startsWith("Rules replace the destination"));
+  }
+
+  @Test
+  public void testMockExecutorCopyWithProgress() {
+    Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--destination", "/some/destination/",
+        "--progress", "1", "--mock-latency", "5" });
+  }
+
+  @Test
+  public void testFailsOnNegativeProgress() {
+    Exception exception = Assertions.assertThrows(RuntimeException.class, () -> {
+      Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--destination", "/a/",
+          "--progress", "-1" });
+    });
+
+    Assertions.assertEquals("The progress interval may not be negative", exception.getMessage());
+  }
+
+  @Test
+  public void testMockExecutorVerifiedMove() {
+    Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--destination", "/some/destination/",
+        "--move", "--verify", "--concurrency", "4" });
+  }
+
+  @Test
+  public void testFailsOnVerifyWithDryRun() {
+    Exception exception = Assertions.assertThrows(RuntimeException.class, () -> {
+      Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--destination", "/a/", "--verify",
+          "--dry-run" });
+    });
+
+    Assertions.assertTrue(exception.getMessage().startsWith("Verify reads back what was written"));
+  }
+
+  @Test
+  public void testMockExecutorWatch() {
+    Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--destination", "/some/destination/",
+        "--watch", "--watch-interval", "1", "--watch-cycles", "2", "--prune" });
+  }
+
+  @Test
+  public void testFailsOnWatchWithMove() {
+    Exception exception = Assertions.assertThrows(RuntimeException.class, () -> {
+      Executor.main(new String[] { "--mock-provider", "--source", "/some/source/", "--destination", "/a/", "--watch",
+          "--move" });
+    });
+
+    Assertions.assertTrue(exception.getMessage().startsWith("Watch keeps a destination in sync"));
+  }
 }
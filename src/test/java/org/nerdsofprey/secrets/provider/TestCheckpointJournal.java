@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class TestCheckpointJournal {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void shouldRememberEntriesAcrossRuns() {
+    Path path = directory.resolve("journal");
+    try (CheckpointJournal journal = CheckpointJournal.open(path, false)) {
+      journal.record(CheckpointJournal.copied("/a/one", "/b/one"));
+      journal.record(CheckpointJournal.deleted("/a/one"));
+    }
+
+    try (CheckpointJournal journal = CheckpointJournal.open(path, true)) {
+      Assertions.assertEquals(2, journal.size());
+      Assertions.assertTrue(journal.isDone(CheckpointJournal.copied("/a/one", "/b/one")));
+      Assertions.assertTrue(journal.isDone(CheckpointJournal.deleted("/a/one")));
+      Assertions.assertFalse(journal.isDone(CheckpointJournal.copied("/a/one", "/c/one")));
+    }
+  }
+
+  @Test
+  public void shouldDropATornFinalLine() throws IOException {
+    Path path = directory.resolve("journal");
+    Files.write(path, "C /a/one /b/one\nC /a/tw".getBytes(StandardCharsets.UTF_8));
+
+    try (CheckpointJournal journal = CheckpointJournal.open(path, true)) {
+      Assertions.assertEquals(1, journal.size());
+      journal.record(CheckpointJournal.copied("/a/two", "/b/two"));
+    }
+
+    Assertions.assertEquals("C /a/one /b/one\nC /a/two /b/two\n",
+        new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void shouldStartOverWithoutResume() throws IOException {
+    Path path = directory.resolve("journal");
+    Files.write(path, "C /a/one /b/one\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE);
+
+    try (CheckpointJournal journal = CheckpointJournal.open(path, false)) {
+      Assertions.assertEquals(0, journal.size());
+    }
+    Assertions.assertEquals(0, Files.size(path));
+  }
+}
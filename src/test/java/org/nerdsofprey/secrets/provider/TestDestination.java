@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestDestination {
+
+  @Test
+  public void shouldTreatABarePathAsLocal() {
+    Destination destination = Destination.parse("/app/prod/");
+
+    Assertions.assertTrue(destination.isLocal());
+    Assertions.assertEquals("/app/prod/", destination.getPath());
+    Assertions.assertEquals("/app/prod/x", destination.qualify("/app/prod/x"));
+  }
+
+  @Test
+  public void shouldParseARemoteDestination() {
+    Destination destination = Destination.parse(
+        "region=eu-west-1, role=arn:aws:iam::123456789012:role/ssm-cp,path=/app/prod/");
+
+    Assertions.assertFalse(destination.isLocal());
+    Assertions.assertEquals("eu-west-1", destination.getRegion());
+    Assertions.assertNull(destination.getProfile());
+    Assertions.assertEquals("arn:aws:iam::123456789012:role/ssm-cp", destination.getRole());
+    Assertions.assertEquals("region=eu-west-1,role=arn:aws:iam::123456789012:role/ssm-cp:/app/prod/x",
+        destination.qualify("/app/prod/x"));
+  }
+
+  @Test
+  public void shouldRejectUnknownKeysAndMissingPaths() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> Destination.parse("zone=a,path=/app/"));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> Destination.parse("region=eu-west-1"));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> Destination.parse("region=,path=/app/"));
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class TestParameterFilter {
+
+  @Test
+  public void shouldDefaultToEquals() {
+    ParameterFilter filter = ParameterFilter.parse("type=SecureString, StringList");
+
+    Assertions.assertEquals(ParameterFilter.TYPE, filter.getKey());
+    Assertions.assertEquals(ParameterFilter.EQUALS, filter.getOption());
+    Assertions.assertEquals(List.of("SecureString", "StringList"), filter.getValues());
+  }
+
+  @Test
+  public void shouldMatchNamesByOption() {
+    Assertions.assertTrue(ParameterFilter.parse("Name:BeginsWith=/app/").matchesName("/app/db/password"));
+    Assertions.assertTrue(ParameterFilter.parse("Name:contains=db,cache").matchesName("/app/cache/host"));
+    Assertions.assertFalse(ParameterFilter.parse("Name=/app/db").matchesName("/app/db/password"));
+  }
+
+  @Test
+  public void shouldRejectUnknownKeysOptionsAndMissingValues() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> ParameterFilter.parse("Tier=Advanced"));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> ParameterFilter.parse("Type:BeginsWith=Secure"));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> ParameterFilter.parse("Label="));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> ParameterFilter.parse("SecureString"));
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+public class TestProgressReporter {
+
+  @Test
+  public void shouldReportCountsAndRemainingWork() {
+    OperationMetrics metrics = new OperationMetrics();
+    metrics.expect(10);
+    for (int i = 0; i < 4; i++) {
+      metrics.recordCopied();
+    }
+    metrics.recordFailed();
+
+    try (ProgressReporter reporter = new ProgressReporter(metrics, Duration.ofHours(1))) {
+      String line = reporter.progress();
+      Assertions.assertTrue(line.startsWith("Copied 4, deleted 0, failed 1 ("), line);
+      Assertions.assertTrue(line.contains("; 4 of 10, about "), line);
+
+      // nothing finished since the last line, so there is no rate to estimate from
+      Assertions.assertTrue(reporter.progress().endsWith("(0.0 items/s); 4 of 10"));
+    }
+  }
+
+  @Test
+  public void shouldOmitTotalsWhenUnknown() {
+    OperationMetrics metrics = new OperationMetrics();
+    metrics.recordDeleted();
+
+    try (ProgressReporter reporter = new ProgressReporter(metrics, Duration.ofHours(1))) {
+      Assertions.assertFalse(reporter.progress().contains(" of "));
+    }
+  }
+}
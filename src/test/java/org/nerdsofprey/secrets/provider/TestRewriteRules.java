@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class TestRewriteRules {
+
+  @Test
+  public void shouldOnlyReplaceALeadingPrefix() {
+    PathMapper mapper = PathMapper.prefix("/app/", "/archive/");
+
+    Assertions.assertEquals("/archive/db/app/url", mapper.map("/app/db/app/url"));
+    Assertions.assertEquals("/archive/VAR", PathMapper.prefix("/app", "/archive/").map("/app/VAR"));
+  }
+
+  @Test
+  public void shouldPreferTheLongestLiteralThenTheFirstListed() {
+    RewriteRules rules = RewriteRules.parse(List.of(
+        "# reorganize the services",
+        "glob   /svc/*/db/**     /databases/$1/$2",
+        "prefix /svc/            /services/",
+        "prefix /svc/legacy/     /legacy/",
+        "regex  ^/team-(\\w+)/(.+)$  /teams/$1/$2",
+        ""), "rules");
+
+    Assertions.assertEquals(4, rules.size());
+    Assertions.assertEquals("/legacy/db/url", rules.map("/svc/legacy/db/url"));
+    Assertions.assertEquals("/databases/orders/primary/url", rules.map("/svc/orders/db/primary/url"));
+    Assertions.assertEquals("/services/orders/api/key", rules.map("/svc/orders/api/key"));
+    Assertions.assertEquals("/teams/payments/token", rules.map("/team-payments/token"));
+    Assertions.assertNull(rules.map("/other/name"));
+  }
+
+  @Test
+  public void shouldFallBackWhenTheSpecificPatternDoesNotMatch() {
+    RewriteRules rules = RewriteRules.parse(List.of("regex ^/a/b?c$ /x", "prefix /a/ /y/"), "rules");
+
+    Assertions.assertEquals("/x", rules.map("/a/c"));
+    Assertions.assertEquals("/y/bd", rules.map("/a/bd"));
+  }
+
+  @Test
+  public void shouldRejectMalformedRules() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> RewriteRules.parse(List.of("move /a/ /b/"), "r"));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> RewriteRules.parse(List.of("prefix /a/"), "r"));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> RewriteRules.parse(List.of("glob /a/* /b/$2"), "r"));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> RewriteRules.parse(List.of("regex ^/a/( /b/"), "r"));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> RewriteRules.parse(List.of("# none"), "r"));
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestWorkerPool {
+
+  @Test
+  public void shouldRunEveryTask() {
+    AtomicInteger ran = new AtomicInteger();
+    try (WorkerPool pool = new WorkerPool(4)) {
+      for (int i = 0; i < 100; i++) {
+        pool.submit(ran::incrementAndGet);
+      }
+      Assertions.assertEquals(0, pool.awaitCompletion());
+    }
+    Assertions.assertEquals(100, ran.get());
+  }
+
+  @Test
+  public void shouldNeverExceedConcurrency() {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    try (WorkerPool pool = new WorkerPool(3)) {
+      for (int i = 0; i < 30; i++) {
+        pool.submit(() -> {
+          maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+          try {
+            Thread.sleep(2);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          inFlight.decrementAndGet();
+        });
+      }
+      pool.awaitCompletion();
+    }
+    Assertions.assertTrue(maxInFlight.get() <= 3);
+  }
+
+  @Test
+  public void shouldCountUncaughtFailures() {
+    try (WorkerPool pool = new WorkerPool(2)) {
+      for (int i = 0; i < 5; i++) {
+        pool.submit(() -> {
+          throw new IllegalStateException("boom");
+        });
+      }
+      Assertions.assertEquals(5, pool.awaitCompletion());
+    }
+  }
+}
@@ -18,19 +18,49 @@ package org.nerdsofprey.secrets.provider.aws;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nerdsofprey.secrets.provider.Destination;
+import org.nerdsofprey.secrets.provider.ItemResult;
+import org.nerdsofprey.secrets.provider.OperationMetrics;
+import org.nerdsofprey.secrets.provider.OperationReport;
+import org.nerdsofprey.secrets.provider.ParameterFilter;
+import org.nerdsofprey.secrets.provider.ProviderOptions;
+import org.nerdsofprey.secrets.provider.RewriteRules;
+import org.nerdsofprey.secrets.provider.mock.InMemorySsmClient;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
 import software.amazon.awssdk.http.SdkHttpResponse;
 import software.amazon.awssdk.services.ssm.SsmClient;
 import software.amazon.awssdk.services.ssm.model.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class TestAWSProvider {
   private static AWSProvider test;
   private static AWSProvider failer;
+  private static AWSProvider parallel;
+  private static AWSProvider parallelFailer;
 
   @BeforeAll()
   public static void setupBeforeClass() {
@@ -38,7 +68,7 @@ public class TestAWSProvider {
     Parameter mockParameter = mock();
     List<Parameter> list = List.of(mockParameter);
     GetParametersByPathResponse response = mock();
-    DeleteParameterResponse deleteResponse = mock();
+    DeleteParametersResponse deleteResponse = mock();
     PutParameterResponse putResponse = mock();
     SdkHttpResponse httpResponse = mock();
 
@@ -50,13 +80,16 @@ public class TestAWSProvider {
     when(response.parameters()).thenReturn(list);
     when(mockSsm.getParametersByPath((GetParametersByPathRequest) any())).thenReturn(response);
     when(mockSsm.putParameter((PutParameterRequest) any())).thenReturn(putResponse);
-    when(mockSsm.deleteParameter((DeleteParameterRequest) any())).thenReturn(deleteResponse);
+    when(deleteResponse.deletedParameters()).thenReturn(List.of("mock_key"));
+    when(mockSsm.deleteParameters((DeleteParametersRequest) any())).thenReturn(deleteResponse);
+    when(mockSsm.describeParameters((DescribeParametersRequest) any())).thenReturn(describeResponse("mock_key"));
 
     test = new AWSProvider(mockSsm);
+    parallel = new AWSProvider(mockSsm, new ProviderOptions().concurrency(4));
 
     SsmClient failSsm = mock();
     SdkHttpResponse failHttpResponse = mock();
-    DeleteParameterResponse deleteFailResponse = mock();
+    DeleteParametersResponse deleteFailResponse = mock();
     PutParameterResponse putFailResponse = mock();
     GetParametersByPathResponse getMultipleParamsResponse = mock();
     GetParametersByPathResponse getLastParamsResponse = mock();
@@ -68,11 +101,28 @@ public class TestAWSProvider {
     when(deleteFailResponse.sdkHttpResponse()).thenReturn(failHttpResponse);
     when(putFailResponse.sdkHttpResponse()).thenReturn(failHttpResponse);
     when(failSsm.putParameter((PutParameterRequest) any())).thenReturn(putFailResponse);
-    when(failSsm.deleteParameter((DeleteParameterRequest) any())).thenReturn(deleteFailResponse);
+    when(failSsm.deleteParameters((DeleteParametersRequest) any())).thenReturn(deleteFailResponse);
     when(failSsm.getParametersByPath((GetParametersByPathRequest) any())).thenReturn(getMultipleParamsResponse,
         getLastParamsResponse);
+    when(failSsm.describeParameters((DescribeParametersRequest) any())).thenReturn(
+        describeResponse("mock_key").toBuilder().nextToken("TOKEN").build(), describeResponse("mock_key"));
 
     failer = new AWSProvider(failSsm);
+
+    SsmClient throwingSsm = mock();
+    GetParametersByPathResponse manyParamsResponse = mock();
+    List<Parameter> manyParams = List.of(mockParameter, mockParameter, mockParameter, mockParameter, mockParameter);
+
+    when(manyParamsResponse.parameters()).thenReturn(manyParams);
+    when(throwingSsm.getParametersByPath((GetParametersByPathRequest) any())).thenReturn(manyParamsResponse);
+    when(throwingSsm.describeParameters((DescribeParametersRequest) any())).thenReturn(
+        describeResponse("mock_key", "mock_key", "mock_key", "mock_key", "mock_key"));
+    when(throwingSsm.putParameter((PutParameterRequest) any())).thenReturn(putResponse)
+        .thenThrow(SsmException.builder().message("boom").build());
+    when(throwingSsm.deleteParameters((DeleteParametersRequest) any())).thenThrow(
+        SsmException.builder().message("boom").build());
+
+    parallelFailer = new AWSProvider(throwingSsm, new ProviderOptions().concurrency(3));
   }
 
   @Test
@@ -105,4 +155,536 @@ public class TestAWSProvider {
     Assertions.assertFalse(failer.performDelete("/source", false));
   }
 
+  @Test
+  public void parallelMoveShouldSucceed() {
+    Assertions.assertTrue(parallel.performMove("/source", "/destination", true, false));
+  }
+
+  @Test
+  public void testParallelCopyFailure() {
+    Assertions.assertFalse(parallelFailer.performCopy("/source", "/destination", false, false));
+  }
+
+  @Test
+  public void testParallelDeleteFailure() {
+    Assertions.assertFalse(parallelFailer.performDelete("/source", false));
+  }
+
+  @Test
+  public void testRejectsInvalidConcurrency() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new ProviderOptions().concurrency(0));
+  }
+
+  @Test
+  public void testListingFailureAfterFirstPage() {
+    SsmClient pagingSsm = mock();
+    Parameter mockParameter = mock();
+    GetParametersByPathResponse firstPage = mock();
+    PutParameterResponse putResponse = mock();
+    SdkHttpResponse httpResponse = mock();
+
+    when(mockParameter.name()).thenReturn("/source/mock_key");
+    when(firstPage.parameters()).thenReturn(List.of(mockParameter));
+    when(firstPage.nextToken()).thenReturn("TOKEN");
+    when(httpResponse.isSuccessful()).thenReturn(true);
+    when(putResponse.sdkHttpResponse()).thenReturn(httpResponse);
+    when(pagingSsm.getParametersByPath((GetParametersByPathRequest) any())).thenReturn(firstPage)
+        .thenThrow(SsmException.builder().message("boom").build());
+    when(pagingSsm.putParameter((PutParameterRequest) any())).thenReturn(putResponse);
+    when(pagingSsm.deleteParameters((DeleteParametersRequest) any())).thenReturn(
+        (DeleteParametersResponse) DeleteParametersResponse
+            .builder()
+            .deletedParameters("/source/mock_key")
+            .sdkHttpResponse(SdkHttpResponse.builder().statusCode(200).build())
+            .build());
+
+    Assertions.assertFalse(new AWSProvider(pagingSsm, new ProviderOptions().concurrency(2)).performMove("/source/",
+        "/destination/", false, false));
+    // the first page is moved while the listing is still in progress, and is finished despite the later failure
+    verify(pagingSsm, times(1)).putParameter((PutParameterRequest) any());
+    verify(pagingSsm, times(1)).deleteParameters(
+        argThat((DeleteParametersRequest request) -> request.names().equals(List.of("/source/mock_key"))));
+  }
+
+  @Test
+  public void testDeletesAreBatched() {
+    SsmClient batchSsm = mock();
+    DeleteParametersResponse deleteResponse = mock();
+    SdkHttpResponse httpResponse = mock();
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      names.add("/source/key" + i);
+    }
+
+    when(httpResponse.isSuccessful()).thenReturn(true);
+    when(deleteResponse.sdkHttpResponse()).thenReturn(httpResponse);
+    // everything but the last name is reported as deleted
+    when(deleteResponse.deletedParameters()).thenReturn(names.subList(0, 24));
+    when(batchSsm.describeParameters((DescribeParametersRequest) any())).thenReturn(
+        describeResponse(names.toArray(new String[0])));
+    when(batchSsm.deleteParameters((DeleteParametersRequest) any())).thenReturn(deleteResponse);
+
+    AWSProvider provider = new AWSProvider(batchSsm, new ProviderOptions().concurrency(2));
+    Assertions.assertFalse(provider.performDelete("/source/", false));
+    verify(batchSsm, times(3)).deleteParameters((DeleteParametersRequest) any());
+    Assertions.assertEquals(3, provider.getMetrics().getCalls(OperationMetrics.Call.DELETE));
+    Assertions.assertEquals(1, provider.getMetrics().getCalls(OperationMetrics.Call.DESCRIBE));
+    Assertions.assertEquals(24, provider.getMetrics().getDeleted());
+    verify(batchSsm, never()).deleteParameter((DeleteParameterRequest) any());
+    // a delete only needs names, so nothing is fetched or decrypted
+    verify(batchSsm, never()).getParametersByPath((GetParametersByPathRequest) any());
+  }
+
+  @Test
+  public void testThrottledPutsAreRetried() {
+    SsmClient throttledSsm = mock();
+    Parameter mockParameter = mock();
+    GetParametersByPathResponse page = mock();
+    PutParameterResponse putResponse = mock();
+    SdkHttpResponse httpResponse = mock();
+    SsmException throttle = (SsmException) SsmException
+        .builder()
+        .statusCode(400)
+        .awsErrorDetails(AwsErrorDetails.builder().errorCode("ThrottlingException").build())
+        .build();
+
+    when(mockParameter.name()).thenReturn("/source/mock_key");
+    when(page.parameters()).thenReturn(List.of(mockParameter));
+    when(httpResponse.isSuccessful()).thenReturn(true);
+    when(putResponse.sdkHttpResponse()).thenReturn(httpResponse);
+    when(throttledSsm.getParametersByPath((GetParametersByPathRequest) any())).thenReturn(page);
+    when(throttledSsm.putParameter((PutParameterRequest) any())).thenThrow(throttle, throttle).thenReturn(putResponse);
+
+    AWSProvider provider = new AWSProvider(throttledSsm);
+    Assertions.assertTrue(provider.performCopy("/source/", "/destination/", false, false));
+    verify(throttledSsm, times(3)).putParameter((PutParameterRequest) any());
+    Assertions.assertEquals(2, provider.getMetrics().getThrottles());
+    Assertions.assertEquals(1, provider.getMetrics().getCopied());
+  }
+
+  @Test
+  public void testSyncWritesOnlyChangesAndPrunes() {
+    SsmClient syncSsm = mock();
+    PutParameterResponse putResponse = mock();
+    DeleteParametersResponse deleteResponse = mock();
+    SdkHttpResponse httpResponse = mock();
+    GetParametersByPathResponse sourcePage = GetParametersByPathResponse
+        .builder()
+        .parameters(stringParameter("/source/same", "one"), stringParameter("/source/changed", "new"),
+            stringParameter("/source/added", "three"))
+        .build();
+    GetParametersByPathResponse destinationPage = GetParametersByPathResponse
+        .builder()
+        .parameters(stringParameter("/destination/same", "one"), stringParameter("/destination/changed", "old"),
+            stringParameter("/destination/orphan", "four"))
+        .build();
+
+    when(httpResponse.isSuccessful()).thenReturn(true);
+    when(putResponse.sdkHttpResponse()).thenReturn(httpResponse);
+    when(deleteResponse.sdkHttpResponse()).thenReturn(httpResponse);
+    when(deleteResponse.deletedParameters()).thenReturn(List.of("/destination/orphan"));
+    when(syncSsm.getParametersByPath((GetParametersByPathRequest) any())).thenAnswer(
+        invocation -> invocation.<GetParametersByPathRequest> getArgument(0).path().equals("/source/") ? sourcePage
+            : destinationPage);
+    when(syncSsm.putParameter((PutParameterRequest) any())).thenReturn(putResponse);
+    when(syncSsm.deleteParameters((DeleteParametersRequest) any())).thenReturn(deleteResponse);
+
+    Assertions.assertTrue(new AWSProvider(syncSsm).performSync("/source/", "/destination/", true, false));
+    verify(syncSsm).putParameter(argThat((PutParameterRequest request) -> request.name().equals("/destination/changed")
+        && request.overwrite()));
+    verify(syncSsm).putParameter(argThat((PutParameterRequest request) -> request.name().equals("/destination/added")));
+    verify(syncSsm, times(2)).putParameter((PutParameterRequest) any());
+    verify(syncSsm).deleteParameters(
+        argThat((DeleteParametersRequest request) -> request.names().equals(List.of("/destination/orphan"))));
+  }
+
+  @Test
+  public void testResumedMoveSkipsJournaledCopies(@TempDir Path directory) throws IOException {
+    SsmClient resumeSsm = mock();
+    PutParameterResponse putResponse = mock();
+    DeleteParametersResponse deleteResponse = mock();
+    SdkHttpResponse httpResponse = mock();
+    Path journal = directory.resolve("journal");
+    Files.write(journal, "C /source/done /destination/done\n".getBytes(StandardCharsets.UTF_8));
+
+    when(httpResponse.isSuccessful()).thenReturn(true);
+    when(putResponse.sdkHttpResponse()).thenReturn(httpResponse);
+    when(deleteResponse.sdkHttpResponse()).thenReturn(httpResponse);
+    when(deleteResponse.deletedParameters()).thenReturn(List.of("/source/done", "/source/todo"));
+    when(resumeSsm.getParametersByPath((GetParametersByPathRequest) any())).thenReturn(GetParametersByPathResponse
+        .builder()
+        .parameters(stringParameter("/source/done", "one"), stringParameter("/source/todo", "two"))
+        .build());
+    when(resumeSsm.putParameter((PutParameterRequest) any())).thenReturn(putResponse);
+    when(resumeSsm.deleteParameters((DeleteParametersRequest) any())).thenReturn(deleteResponse);
+
+    AWSProvider provider = new AWSProvider(resumeSsm, new ProviderOptions().journal(journal, true));
+    Assertions.assertTrue(provider.performMove("/source/", "/destination/", false, false));
+    verify(resumeSsm).putParameter(
+        argThat((PutParameterRequest request) -> request.name().equals("/destination/todo")));
+    verify(resumeSsm, times(1)).putParameter((PutParameterRequest) any());
+    // the copy finished by the earlier run still needs its source deleted
+    verify(resumeSsm).deleteParameters(argThat(
+        (DeleteParametersRequest request) -> request.names().containsAll(List.of("/source/done", "/source/todo"))));
+    Assertions.assertTrue(Files.readAllLines(journal).contains("D /source/done"));
+  }
+
+  @Test
+  public void testFanOutReadsOnceAndCountsErrorsPerDestination() {
+    SsmClient sourceSsm = mock();
+    SsmClient remoteSsm = mock();
+    PutParameterResponse putResponse = mock();
+    SdkHttpResponse httpResponse = mock();
+
+    when(httpResponse.isSuccessful()).thenReturn(true);
+    when(putResponse.sdkHttpResponse()).thenReturn(httpResponse);
+    when(sourceSsm.getParametersByPath((GetParametersByPathRequest) any())).thenReturn(GetParametersByPathResponse
+        .builder()
+        .parameters(stringParameter("/source/one", "1"), stringParameter("/source/two", "2"))
+        .build());
+    when(sourceSsm.putParameter((PutParameterRequest) any())).thenReturn(putResponse);
+    when(remoteSsm.putParameter((PutParameterRequest) any())).thenReturn(putResponse)
+        .thenThrow(SsmException.builder().message("boom").build());
+
+    Destination remote = Destination.parse("region=eu-west-1,path=/replica/");
+    AWSProvider provider = new AWSProvider(sourceSsm, new ProviderOptions().concurrency(2),
+        destination -> destination.equals(remote) ? remoteSsm : null);
+
+    Assertions.assertFalse(
+        provider.performCopy("/source/", List.of(Destination.of("/copy/"), remote), false, false));
+    verify(sourceSsm, times(1)).getParametersByPath((GetParametersByPathRequest) any());
+    verify(sourceSsm, times(2)).putParameter(
+        argThat((PutParameterRequest request) -> request.name().startsWith("/copy/")));
+    verify(remoteSsm, times(2)).putParameter(
+        argThat((PutParameterRequest request) -> request.name().startsWith("/replica/")));
+    Assertions.assertEquals(3, provider.getMetrics().getCopied());
+  }
+
+  @Test
+  public void testAppliedMoveSkipsParametersChangedSincePlan(@TempDir Path directory) {
+    InMemorySsmClient store = new InMemorySsmClient()
+        .seed("/source/one", ParameterType.STRING, "1")
+        .seed("/source/two", ParameterType.SECURE_STRING, "2")
+        .seed("/source/three", ParameterType.STRING, "3");
+    Path plan = directory.resolve("plan");
+
+    Assertions.assertTrue(
+        new AWSProvider(store, new ProviderOptions().planOut(plan)).performMove("/source/", "/destination/", false,
+            true));
+    Assertions.assertEquals(3, store.size());
+
+    store.seed("/source/two", ParameterType.SECURE_STRING, "changed");
+    store.seed("/source/added", ParameterType.STRING, "4");
+    AWSProvider provider = new AWSProvider(store, new ProviderOptions().concurrency(2));
+
+    Assertions.assertFalse(provider.performApply(plan));
+    Assertions.assertEquals("1", store.get("/destination/one").value());
+    Assertions.assertEquals("3", store.get("/destination/three").value());
+    Assertions.assertNull(store.get("/destination/two"));
+    Assertions.assertNull(store.get("/destination/added"));
+    Assertions.assertNotNull(store.get("/source/two"));
+    Assertions.assertEquals(0, provider.getMetrics().getCalls(OperationMetrics.Call.LIST));
+  }
+
+  @Test
+  public void testIncompletePlanIsNotApplied(@TempDir Path directory) throws IOException {
+    InMemorySsmClient store = new InMemorySsmClient();
+    for (int i = 0; i < 30; i++) {
+      store.seed(String.format("/source/key%02d", i), ParameterType.STRING, String.valueOf(i));
+    }
+    Path plan = directory.resolve("plan");
+    Assertions.assertTrue(
+        new AWSProvider(store, new ProviderOptions().planOut(plan)).performMove("/source/", "/destination/", false,
+            true));
+
+    // a dry run that fails part way leaves the finished plan as it was
+    InMemorySsmClient failing = new InMemorySsmClient().failurePrefix("/source/");
+    Assertions.assertFalse(
+        new AWSProvider(failing, new ProviderOptions().planOut(plan)).performMove("/source/", "/destination/", false,
+            true));
+    try (Stream<Path> files = Files.list(directory)) {
+      Assertions.assertEquals(1, files.count());
+    }
+
+    byte[] whole = Files.readAllBytes(plan);
+    Files.write(plan, Arrays.copyOf(whole, whole.length - 9));
+    AWSProvider provider = new AWSProvider(store, new ProviderOptions().concurrency(2));
+    Assertions.assertFalse(provider.performApply(plan));
+    Assertions.assertEquals(30, store.size());
+    Assertions.assertNull(store.get("/destination/key00"));
+    Assertions.assertEquals(0, provider.getMetrics().getCalls(OperationMetrics.Call.GET));
+  }
+
+  @Test
+  public void testFiltersNarrowTheListing() {
+    InMemorySsmClient store = new InMemorySsmClient()
+        .seed("/source/app/secret", ParameterType.SECURE_STRING, "1")
+        .seed("/source/app/plain", ParameterType.STRING, "2")
+        .seed("/source/db/secret", ParameterType.SECURE_STRING, "3");
+    ProviderOptions options = new ProviderOptions().filters(
+        List.of(ParameterFilter.parse("Type=SecureString"), ParameterFilter.parse("Name:BeginsWith=/source/app/")));
+
+    Assertions.assertTrue(new AWSProvider(store, options).performCopy("/source/", "/copy/", false, false));
+    Assertions.assertNotNull(store.get("/copy/app/secret"));
+    Assertions.assertNull(store.get("/copy/app/plain"));
+    Assertions.assertNull(store.get("/copy/db/secret"));
+
+    Assertions.assertTrue(new AWSProvider(store, options).performDelete("/source/", false));
+    Assertions.assertNull(store.get("/source/app/secret"));
+    Assertions.assertNotNull(store.get("/source/app/plain"));
+    Assertions.assertNotNull(store.get("/source/db/secret"));
+  }
+
+  @Test
+  public void testPipelinedMoveLeavesOnlyFailedItemsBehind() {
+    InMemorySsmClient store = new InMemorySsmClient().failurePrefix("/destination/bad");
+    for (int i = 0; i < 12; i++) {
+      store.seed(String.format("/source/key%02d", i), ParameterType.STRING, String.valueOf(i));
+    }
+    store.seed("/source/bad", ParameterType.STRING, "x");
+    AWSProvider provider = new AWSProvider(store, new ProviderOptions().concurrency(3));
+
+    Assertions.assertFalse(provider.performMove("/source/", "/destination/", false, false));
+    Assertions.assertEquals("x", store.get("/source/bad").value());
+    Assertions.assertNull(store.get("/destination/bad"));
+    for (int i = 0; i < 12; i++) {
+      Assertions.assertNull(store.get(String.format("/source/key%02d", i)));
+      Assertions.assertEquals(String.valueOf(i), store.get(String.format("/destination/key%02d", i)).value());
+    }
+    // one full batch is deleted while copies are still running, and the remainder once they finish
+    Assertions.assertEquals(2, provider.getMetrics().getCalls(OperationMetrics.Call.DELETE));
+    Assertions.assertEquals(12, provider.getMetrics().getDeleted());
+  }
+
+  @Test
+  public void testVerifiedMoveKeepsSourcesWhenACopyDiffers() {
+    // a destination that silently writes one value wrong
+    InMemorySsmClient store = new InMemorySsmClient() {
+      @Override public PutParameterResponse putParameter(PutParameterRequest request) {
+        return super.putParameter(
+            request.name().equals("/destination/two") ? request.toBuilder().value("corrupted").build() : request);
+      }
+    };
+    for (int i = 0; i < 12; i++) {
+      store.seed(String.format("/source/key%02d", i), ParameterType.STRING, String.valueOf(i));
+    }
+    store.seed("/source/two", ParameterType.SECURE_STRING, "2");
+    AWSProvider provider = new AWSProvider(store, new ProviderOptions().concurrency(3).verify(true));
+
+    Assertions.assertFalse(provider.performMove("/source/", "/destination/", false, false));
+    Assertions.assertEquals(26, store.size());
+    Assertions.assertEquals(0, provider.getMetrics().getCalls(OperationMetrics.Call.DELETE));
+    Assertions.assertEquals(2, provider.getMetrics().getCalls(OperationMetrics.Call.GET));
+
+    Assertions.assertTrue(new AWSProvider(store, new ProviderOptions().concurrency(3).verify(true)).performCopy(
+        "/source/", "/copy/", false, false));
+  }
+
+  @Test
+  public void testWatchCopiesOnlyWhatChanged() {
+    // the source changes just before the second cycle lists it; the first listing builds the index
+    AtomicInteger polls = new AtomicInteger();
+    InMemorySsmClient store = new InMemorySsmClient() {
+      @Override public DescribeParametersResponse describeParameters(DescribeParametersRequest request) {
+        if (request.nextToken() == null && polls.incrementAndGet() == 2) {
+          seed("/source/key03", ParameterType.STRING, "changed");
+          seed("/source/added", ParameterType.SECURE_STRING, "new");
+          deleteParameter(DeleteParameterRequest.builder().name("/source/key07").build());
+        }
+        return super.describeParameters(request);
+      }
+    };
+    for (int i = 0; i < 60; i++) {
+      store.seed(String.format("/source/key%02d", i), ParameterType.STRING, String.valueOf(i));
+    }
+    store.seed("/destination/stale", ParameterType.STRING, "x");
+    AWSProvider provider = new AWSProvider(store, new ProviderOptions().concurrency(3));
+
+    Assertions.assertTrue(provider.performWatch("/source/", "/destination/", true, Duration.ofMillis(1), 3));
+    Assertions.assertEquals("changed", store.get("/destination/key03").value());
+    Assertions.assertEquals("new", store.get("/destination/added").value());
+    Assertions.assertNull(store.get("/destination/key07"));
+    Assertions.assertNull(store.get("/destination/stale"));
+    Assertions.assertEquals(3, polls.get());
+    // 60 puts for the first sync, then just the two that changed
+    Assertions.assertEquals(62, provider.getMetrics().getCalls(OperationMetrics.Call.PUT));
+  }
+
+  @Test
+  public void testWatchCopiesARecreatedParameterAndRetriesAFailedPrune() {
+    // before the second cycle, key is deleted and created again at version 1, and gone is deleted for good
+    AtomicInteger polls = new AtomicInteger();
+    AtomicInteger prunes = new AtomicInteger();
+    InMemorySsmClient store = new InMemorySsmClient() {
+      @Override public DescribeParametersResponse describeParameters(DescribeParametersRequest request) {
+        if (request.nextToken() == null && polls.incrementAndGet() == 2) {
+          deleteParameter(DeleteParameterRequest.builder().name("/source/key").build());
+          seed("/source/key", ParameterType.STRING, "recreated");
+          deleteParameter(DeleteParameterRequest.builder().name("/source/gone").build());
+        }
+        return super.describeParameters(request);
+      }
+
+      @Override public DeleteParametersResponse deleteParameters(DeleteParametersRequest request) {
+        if (request.names().contains("/destination/gone") && prunes.incrementAndGet() == 1) {
+          throw InternalServerErrorException.builder().message("simulated").build();
+        }
+        return super.deleteParameters(request);
+      }
+    };
+    store.seed("/source/key", ParameterType.STRING, "original");
+    store.seed("/source/gone", ParameterType.STRING, "x");
+    AWSProvider provider = new AWSProvider(store, new ProviderOptions().concurrency(2));
+
+    Assertions.assertFalse(provider.performWatch("/source/", "/destination/", true, Duration.ofMillis(1), 4));
+    Assertions.assertEquals(1, store.get("/source/key").version());
+    Assertions.assertEquals("recreated", store.get("/destination/key").value());
+    Assertions.assertNull(store.get("/destination/gone"));
+    Assertions.assertEquals(2, prunes.get());
+  }
+
+  @Test
+  public void testSubmittedOperationsReportTheirOwnItems() throws Exception {
+    InMemorySsmClient store = new InMemorySsmClient().failurePrefix("/copy/bad");
+    for (int i = 0; i < 5; i++) {
+      store.seed(String.format("/source/key%d", i), ParameterType.STRING, String.valueOf(i));
+      store.seed(String.format("/other/key%d", i), ParameterType.STRING, String.valueOf(i));
+    }
+    store.seed("/source/bad", ParameterType.STRING, "x");
+    AWSProvider provider = new AWSProvider(store, new ProviderOptions().concurrency(2));
+
+    List<ItemResult> published = new CopyOnWriteArrayList<>();
+    CompletableFuture<Void> completed = new CompletableFuture<>();
+    CompletableFuture<OperationReport> copy = provider.submit(
+        cloud -> cloud.performCopy("/source/", "/copy/", false, false), new Flow.Subscriber<ItemResult>() {
+          @Override public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+          }
+
+          @Override public void onNext(ItemResult item) {
+            published.add(item);
+          }
+
+          @Override public void onError(Throwable throwable) {
+            completed.completeExceptionally(throwable);
+          }
+
+          @Override public void onComplete() {
+            completed.complete(null);
+          }
+        });
+    CompletableFuture<OperationReport> delete = provider.delete("/other/", false);
+
+    OperationReport copyReport = copy.get();
+    Assertions.assertFalse(copyReport.isSuccess());
+    Assertions.assertEquals(5, copyReport.getCopied());
+    Assertions.assertEquals(0, copyReport.getDeleted());
+    Assertions.assertEquals(1, copyReport.getFailures().size());
+    Assertions.assertEquals("/copy/bad", copyReport.getFailures().get(0).getTarget());
+    Assertions.assertEquals(ItemResult.Action.COPY, copyReport.getFailures().get(0).getAction());
+
+    OperationReport deleteReport = delete.get();
+    Assertions.assertTrue(deleteReport.isSuccess());
+    Assertions.assertEquals(5, deleteReport.getDeleted());
+    Assertions.assertEquals(0, deleteReport.getCopied());
+
+    completed.get();
+    Assertions.assertEquals(6, published.size());
+    Assertions.assertEquals(5, published.stream().filter(ItemResult::isSuccess).count());
+    // the provider's own metrics add up every operation submitted to it
+    Assertions.assertEquals(5, provider.getMetrics().getCopied());
+    Assertions.assertEquals(5, provider.getMetrics().getDeleted());
+  }
+
+  @Test
+  public void testSubmittedOperationThatThrowsAnErrorStillFinishes() throws Exception {
+    AWSProvider provider = new AWSProvider(new InMemorySsmClient(), new ProviderOptions());
+    CompletableFuture<Throwable> failed = new CompletableFuture<>();
+    CompletableFuture<OperationReport> report = provider.submit(cloud -> {
+      throw new AssertionError("boom");
+    }, new Flow.Subscriber<ItemResult>() {
+      @Override public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+
+      @Override public void onNext(ItemResult item) {
+      }
+
+      @Override public void onError(Throwable throwable) {
+        failed.complete(throwable);
+      }
+
+      @Override public void onComplete() {
+        failed.complete(null);
+      }
+    });
+
+    ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> report.get(5, TimeUnit.SECONDS));
+    Assertions.assertTrue(e.getCause() instanceof AssertionError);
+    Assertions.assertTrue(failed.get(5, TimeUnit.SECONDS) instanceof AssertionError);
+  }
+
+  @Test
+  public void testRewriteMovesInOnePassAndRefusesCollisions() {
+    InMemorySsmClient store = new InMemorySsmClient()
+        .seed("/svc/orders/db/url", ParameterType.STRING, "1")
+        .seed("/svc/orders/api/key", ParameterType.SECURE_STRING, "2")
+        .seed("/svc/keep/readme", ParameterType.STRING, "3");
+    RewriteRules rules = RewriteRules.parse(
+        List.of("glob /svc/*/db/** /db/$1/$2", "prefix /svc/orders/api/ /api/orders/"), "rules");
+    AWSProvider provider = new AWSProvider(store, new ProviderOptions().concurrency(2));
+
+    Assertions.assertTrue(provider.performRewrite("/svc/", rules, false, true, false));
+    Assertions.assertEquals("1", store.get("/db/orders/url").value());
+    Assertions.assertEquals("2", store.get("/api/orders/key").value());
+    Assertions.assertNull(store.get("/svc/orders/db/url"));
+    Assertions.assertNotNull(store.get("/svc/keep/readme"));
+    Assertions.assertEquals(1, provider.getMetrics().getCalls(OperationMetrics.Call.DESCRIBE));
+    Assertions.assertEquals(0, provider.getMetrics().getCalls(OperationMetrics.Call.LIST));
+
+    store.seed("/svc/a/x", ParameterType.STRING, "4").seed("/svc/b/x", ParameterType.STRING, "5");
+    RewriteRules colliding = RewriteRules.parse(List.of("glob /svc/*/x /flat/x"), "rules");
+    Assertions.assertFalse(provider.performRewrite("/svc/", colliding, true, false, false));
+    Assertions.assertNull(store.get("/flat/x"));
+  }
+
+  @Test
+  public void testParallelListingFetchesValuesByName() {
+    InMemorySsmClient store = new InMemorySsmClient().latency(2);
+    for (int i = 0; i < 57; i++) {
+      store.seed(String.format("/source/%d/key", i), ParameterType.SECURE_STRING, String.valueOf(i));
+    }
+    AWSProvider provider = new AWSProvider(store, new ProviderOptions().concurrency(4).listConcurrency(4));
+
+    Assertions.assertTrue(provider.performCopy("/source/", "/copy/", false, false));
+    Assertions.assertEquals("56", store.get("/copy/56/key").value());
+    Assertions.assertEquals(114, store.size());
+    Assertions.assertEquals(0, provider.getMetrics().getCalls(OperationMetrics.Call.LIST));
+    Assertions.assertEquals(2, provider.getMetrics().getCalls(OperationMetrics.Call.DESCRIBE));
+    Assertions.assertEquals(6, provider.getMetrics().getCalls(OperationMetrics.Call.GET));
+  }
+
+  @Test
+  public void testParallelListingFailureStopsTheCopy() {
+    InMemorySsmClient store = new InMemorySsmClient().failurePrefix("/source/bad");
+    for (int i = 0; i < 30; i++) {
+      store.seed(String.format("/source/key%02d", i), ParameterType.STRING, String.valueOf(i));
+    }
+    store.seed("/source/bad", ParameterType.STRING, "x");
+
+    Assertions.assertFalse(new AWSProvider(store, new ProviderOptions().concurrency(2).listConcurrency(3))
+        .performCopy("/source/", "/copy/", false, false));
+  }
+
+  private static DescribeParametersResponse describeResponse(String... names) {
+    List<ParameterMetadata> parameters = new ArrayList<>();
+    for (String name : names) {
+      parameters.add(ParameterMetadata.builder().name(name).type(ParameterType.STRING).version(1L).build());
+    }
+    return DescribeParametersResponse.builder().parameters(parameters).build();
+  }
+
+  private static Parameter stringParameter(String name, String value) {
+    return Parameter.builder().name(name).value(value).type(ParameterType.STRING).dataType("text").build();
+  }
 }
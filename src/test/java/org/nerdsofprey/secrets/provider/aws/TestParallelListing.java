@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider.aws;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class TestParallelListing {
+
+  @Test
+  public void shouldMergeEveryBatch() {
+    List<Integer> batches = IntStream.range(0, 50).boxed().collect(Collectors.toList());
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+
+    List<Integer> merged = new ArrayList<>();
+    for (Integer item : ParallelListing.of(batches, batch -> {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(2);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      inFlight.decrementAndGet();
+      return List.of(batch * 2, batch * 2 + 1);
+    }, 4)) {
+      merged.add(item);
+    }
+
+    merged.sort(null);
+    Assertions.assertEquals(IntStream.range(0, 100).boxed().collect(Collectors.toList()), merged);
+    Assertions.assertTrue(maxInFlight.get() <= 4);
+  }
+
+  @Test
+  public void shouldRethrowAFailedFetch() {
+    List<Integer> batches = IntStream.range(0, 20).boxed().collect(Collectors.toList());
+    Iterable<Integer> listing = ParallelListing.of(batches, batch -> {
+      if (batch == 7) {
+        throw new IllegalStateException("boom");
+      }
+      return List.of(batch);
+    }, 3);
+
+    Assertions.assertThrows(IllegalStateException.class, () -> listing.forEach(item -> {
+    }));
+  }
+
+  @Test
+  public void shouldStopAsSoonAsItIsClosed() throws Exception {
+    CompletableFuture<Thread> producer = new CompletableFuture<>();
+    AtomicInteger fetched = new AtomicInteger();
+    Iterable<Integer> batches = () -> {
+      producer.complete(Thread.currentThread());
+      return IntStream.range(0, 1000).iterator();
+    };
+    Iterator<Integer> listing = ParallelListing.of(batches, batch -> {
+      fetched.incrementAndGet();
+      return List.of(batch);
+    }, 2).iterator();
+    listing.next();
+    CloseableIterator.closeIfCloseable(listing);
+
+    Thread thread = producer.get(5, TimeUnit.SECONDS);
+    thread.join(5000);
+    Assertions.assertFalse(thread.isAlive());
+    Assertions.assertFalse(listing.hasNext());
+    Assertions.assertTrue(fetched.get() < 1000);
+  }
+
+  @Test
+  public void shouldStopWhenTheConsumerWalksAway() throws Exception {
+    CompletableFuture<Thread> producer = new CompletableFuture<>();
+    Iterable<Integer> batches = () -> {
+      producer.complete(Thread.currentThread());
+      return IntStream.range(0, 1000).iterator();
+    };
+    Iterator<Integer> listing = ParallelListing.of(batches, List::of, 2).iterator();
+    listing.next();
+    listing = null;
+
+    Thread thread = producer.get(5, TimeUnit.SECONDS);
+    for (int i = 0; i < 50 && thread.isAlive(); i++) {
+      System.gc();
+      thread.join(100);
+    }
+    Assertions.assertFalse(thread.isAlive());
+  }
+}
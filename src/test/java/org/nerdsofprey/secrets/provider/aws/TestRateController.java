@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider.aws;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.nerdsofprey.secrets.provider.OperationMetrics;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.ssm.model.ParameterNotFoundException;
+import software.amazon.awssdk.services.ssm.model.SsmException;
+import software.amazon.awssdk.services.ssm.model.TooManyUpdatesException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestRateController {
+
+  @Test
+  public void shouldClimbBackAfterAThrottle() {
+    RateController controller = new RateController(1000);
+    AtomicInteger attempts = new AtomicInteger();
+    controller.call(new OperationMetrics(), () -> {
+      if (attempts.incrementAndGet() == 1) {
+        throw TooManyUpdatesException.builder().message("slow down").build();
+      }
+      return true;
+    });
+    double throttled = controller.currentRate();
+    for (int i = 0; i < 20; i++) {
+      controller.call(new OperationMetrics(), () -> true);
+    }
+    Assertions.assertTrue(controller.currentRate() > throttled);
+  }
+
+  @Test
+  public void shouldNeverExceedMaxTps() {
+    RateController controller = new RateController(2);
+    for (int i = 0; i < 3; i++) {
+      controller.call(new OperationMetrics(), () -> true);
+    }
+    Assertions.assertEquals(2, controller.currentRate());
+  }
+
+  @Test
+  public void shouldBackOffAndRetryOnThrottle() {
+    OperationMetrics metrics = new OperationMetrics();
+    RateController controller = new RateController(1000);
+    double initial = controller.currentRate();
+    AtomicInteger attempts = new AtomicInteger();
+
+    boolean result = controller.call(metrics, () -> {
+      if (attempts.incrementAndGet() == 1) {
+        throw TooManyUpdatesException.builder().message("slow down").build();
+      }
+      return true;
+    });
+
+    Assertions.assertTrue(result);
+    Assertions.assertEquals(2, attempts.get());
+    Assertions.assertEquals(1, metrics.getThrottles());
+    Assertions.assertTrue(controller.currentRate() < initial);
+  }
+
+  @Test
+  public void shouldRecogniseThrottlingErrorCodes() {
+    SsmException throttle = (SsmException) SsmException
+        .builder()
+        .statusCode(400)
+        .awsErrorDetails(AwsErrorDetails.builder().errorCode("ThrottlingException").build())
+        .build();
+    Assertions.assertTrue(RateController.isThrottle(throttle));
+  }
+
+  @Test
+  public void shouldNotRetryOtherErrors() {
+    RateController controller = new RateController(1000);
+    AtomicInteger attempts = new AtomicInteger();
+
+    Assertions.assertThrows(ParameterNotFoundException.class, () -> controller.call(new OperationMetrics(), () -> {
+      attempts.incrementAndGet();
+      throw ParameterNotFoundException.builder().message("missing").build();
+    }));
+    Assertions.assertEquals(1, attempts.get());
+  }
+}
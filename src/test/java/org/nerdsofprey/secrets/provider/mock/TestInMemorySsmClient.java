@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider.mock;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nerdsofprey.secrets.provider.ProviderOptions;
+import software.amazon.awssdk.services.ssm.model.GetParametersByPathRequest;
+import software.amazon.awssdk.services.ssm.model.GetParametersByPathResponse;
+import software.amazon.awssdk.services.ssm.model.ParameterAlreadyExistsException;
+import software.amazon.awssdk.services.ssm.model.ParameterType;
+import software.amazon.awssdk.services.ssm.model.PutParameterRequest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TestInMemorySsmClient {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void shouldPageThroughAPathLikeSsm() {
+    InMemorySsmClient client = new InMemorySsmClient();
+    for (int i = 0; i < 25; i++) {
+      client.seed(String.format("/app/key%02d", i), ParameterType.STRING, "value");
+    }
+    client.seed("/app/nested/key", ParameterType.STRING, "value");
+    client.seed("/application/key", ParameterType.STRING, "value");
+
+    int recursive = 0;
+    int pages = 0;
+    String token = null;
+    do {
+      GetParametersByPathResponse page = client.getParametersByPath(
+          GetParametersByPathRequest.builder().path("/app").recursive(true).nextToken(token).build());
+      recursive += page.parameters().size();
+      pages++;
+      token = page.nextToken();
+    } while (token != null);
+    Assertions.assertEquals(26, recursive);
+    Assertions.assertEquals(3, pages);
+
+    GetParametersByPathResponse flat = client.getParametersByPath(
+        GetParametersByPathRequest.builder().path("/app/nested").recursive(false).build());
+    Assertions.assertEquals(1, flat.parameters().size());
+    Assertions.assertNull(flat.nextToken());
+  }
+
+  @Test
+  public void shouldRefuseToOverwriteUnlessAsked() {
+    InMemorySsmClient client = new InMemorySsmClient().seed("/app/key", ParameterType.STRING, "one");
+    PutParameterRequest.Builder put = PutParameterRequest.builder().name("/app/key").value("two");
+
+    Assertions.assertThrows(ParameterAlreadyExistsException.class, () -> client.putParameter(put.build()));
+    client.putParameter(put.overwrite(true).build());
+    Assertions.assertEquals("two", client.get("/app/key").value());
+    Assertions.assertEquals(2L, client.get("/app/key").version());
+  }
+
+  @Test
+  public void shouldCopyASeededTreeThroughTheProvider() throws IOException {
+    Path seed = directory.resolve("seed.tsv");
+    Files.write(seed, ("# name, type, value\n/dev/DB_URL\tString\tjdbc:postgresql://db/dev\n"
+        + "/dev/DB_PASSWORD\tSecureString\thunter2\n").getBytes(StandardCharsets.UTF_8));
+    InMemorySsmClient store = new InMemorySsmClient().seed(seed).throttleRate(0.2);
+    MockProvider provider = new MockProvider(store, new ProviderOptions().concurrency(4));
+
+    Assertions.assertTrue(provider.performMove("/dev/", "/prod/", false, false));
+    Assertions.assertEquals(2, store.size());
+    Assertions.assertEquals("hunter2", store.get("/prod/DB_PASSWORD").value());
+    Assertions.assertEquals(ParameterType.SECURE_STRING, store.get("/prod/DB_PASSWORD").type());
+    Assertions.assertNull(store.get("/dev/DB_URL"));
+  }
+
+  @Test
+  public void shouldFailEverythingUnderTheAutofailPrefix() {
+    MockProvider provider = new MockProvider();
+    provider.getStore().seed("/autofail/key", ParameterType.STRING, "value");
+
+    Assertions.assertFalse(provider.performCopy("/autofail/", "/elsewhere/", false, false));
+    Assertions.assertNull(provider.getStore().get("/elsewhere/key"));
+  }
+}
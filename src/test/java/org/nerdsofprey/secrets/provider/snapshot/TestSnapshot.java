@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2019 admin (admin@infrastructurebuilder.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nerdsofprey.secrets.provider.snapshot;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nerdsofprey.secrets.provider.ProviderOptions;
+import org.nerdsofprey.secrets.provider.mock.InMemorySsmClient;
+import org.nerdsofprey.secrets.provider.mock.MockProvider;
+import software.amazon.awssdk.services.ssm.model.Parameter;
+import software.amazon.awssdk.services.ssm.model.ParameterType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class TestSnapshot {
+  private static final char[] PASSPHRASE = "correct horse battery staple".toCharArray();
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void shouldRoundTripAcrossFrames() {
+    Path file = directory.resolve("plain.snap");
+    try (SnapshotWriter writer = SnapshotWriter.create(file, "/app/", null)) {
+      for (int i = 0; i < 600; i++) {
+        writer.write(parameter("/app/key" + i, "value-" + i));
+      }
+      writer.finish();
+    }
+
+    List<Parameter> parameters = readAll(file, null);
+    Assertions.assertEquals(600, parameters.size());
+    Assertions.assertEquals("/app/key599", parameters.get(599).name());
+    Assertions.assertEquals("value-599", parameters.get(599).value());
+    Assertions.assertEquals(ParameterType.SECURE_STRING, parameters.get(0).type());
+    Assertions.assertEquals("text", parameters.get(0).dataType());
+  }
+
+  @Test
+  public void shouldOnlyDecryptWithTheRightPassphrase() {
+    Path file = directory.resolve("sealed.snap");
+    try (SnapshotWriter writer = SnapshotWriter.create(file, "/app/", PASSPHRASE)) {
+      writer.write(parameter("/app/secret", "hunter2"));
+      writer.finish();
+    }
+
+    Assertions.assertEquals("hunter2", readAll(file, PASSPHRASE).get(0).value());
+    Assertions.assertThrows(UncheckedIOException.class, () -> readAll(file, "wrong".toCharArray()));
+    Assertions.assertThrows(UncheckedIOException.class, () -> readAll(file, null));
+  }
+
+  @Test
+  public void shouldRejectAnUnfinishedOrTruncatedSnapshot() throws IOException {
+    Path unfinished = directory.resolve("unfinished.snap");
+    try (SnapshotWriter writer = SnapshotWriter.create(unfinished, "/app/", null)) {
+      writer.write(parameter("/app/key", "value"));
+      writer.finish();
+    }
+    // drop the end frame, as if the export had stopped after its last parameter
+    try (FileChannel channel = FileChannel.open(unfinished, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 16);
+    }
+    Assertions.assertThrows(UncheckedIOException.class, () -> readAll(unfinished, null));
+
+    Path truncated = directory.resolve("truncated.snap");
+    try (SnapshotWriter writer = SnapshotWriter.create(truncated, "/app/", null)) {
+      writer.write(parameter("/app/key", "value"));
+      writer.finish();
+    }
+    try (FileChannel channel = FileChannel.open(truncated, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 4);
+    }
+    Assertions.assertThrows(UncheckedIOException.class, () -> readAll(truncated, null));
+  }
+
+  @Test
+  public void shouldKeepThePreviousSnapshotUntilTheNewOneIsFinished() throws IOException {
+    Path file = directory.resolve("kept.snap");
+    try (SnapshotWriter writer = SnapshotWriter.create(file, "/app/", null)) {
+      writer.write(parameter("/app/old", "old"));
+      writer.finish();
+    }
+    try (SnapshotWriter writer = SnapshotWriter.create(file, "/app/", null)) {
+      writer.write(parameter("/app/new", "new"));
+    }
+
+    Assertions.assertEquals("/app/old", readAll(file, null).get(0).name());
+    try (Stream<Path> files = Files.list(directory)) {
+      Assertions.assertEquals(1, files.count());
+    }
+  }
+
+  @Test
+  public void shouldRejectCorruptHeadersAndFrameLengths() throws IOException {
+    Path plain = directory.resolve("plain.snap");
+    try (SnapshotWriter writer = SnapshotWriter.create(plain, "/app/", null)) {
+      writer.write(parameter("/app/key", "value"));
+      writer.finish();
+    }
+    int plainFrame = Snapshot.MAGIC.length + 2 + Integer.BYTES + "/app/".length();
+    for (int length : new int[] {-1, Integer.MAX_VALUE}) {
+      overwriteInt(plain, plainFrame, length);
+      Assertions.assertThrows(UncheckedIOException.class, () -> readAll(plain, null));
+    }
+
+    Path sealed = directory.resolve("sealed.snap");
+    try (SnapshotWriter writer = SnapshotWriter.create(sealed, "/app/", PASSPHRASE)) {
+      writer.write(parameter("/app/secret", "hunter2"));
+      writer.finish();
+    }
+    int iterations = Snapshot.MAGIC.length + 2 + Snapshot.SALT_BYTES;
+    int sealedFrame = iterations + 2 * Integer.BYTES + "/app/".length();
+    overwriteInt(sealed, sealedFrame, Snapshot.NONCE_BYTES);
+    Assertions.assertThrows(UncheckedIOException.class, () -> readAll(sealed, PASSPHRASE));
+    for (int rounds : new int[] {0, Integer.MAX_VALUE}) {
+      overwriteInt(sealed, iterations, rounds);
+      Assertions.assertThrows(UncheckedIOException.class, () -> readAll(sealed, PASSPHRASE));
+    }
+  }
+
+  @Test
+  public void shouldExportAndRestoreThroughTheProvider() {
+    InMemorySsmClient store = new InMemorySsmClient()
+        .seed("/dev/DB_URL", ParameterType.STRING, "jdbc:postgresql://db/dev")
+        .seed("/dev/nested/DB_PASSWORD", ParameterType.SECURE_STRING, "hunter2");
+    MockProvider provider = new MockProvider(store, new ProviderOptions().snapshotPassphrase(PASSPHRASE));
+    String snapshot = Snapshot.SCHEME + directory.resolve("dev.snap");
+
+    Assertions.assertTrue(provider.performCopy("/dev/", snapshot, false, false));
+    Assertions.assertTrue(provider.performCopy(snapshot, "/restored/", false, false));
+    Assertions.assertEquals("hunter2", store.get("/restored/nested/DB_PASSWORD").value());
+    Assertions.assertEquals(ParameterType.SECURE_STRING, store.get("/restored/nested/DB_PASSWORD").type());
+    Assertions.assertEquals(4, store.size());
+  }
+
+  @Test
+  public void shouldRestoreNothingFromATruncatedSnapshot() throws IOException {
+    InMemorySsmClient store = new InMemorySsmClient();
+    for (int i = 0; i < 600; i++) {
+      store.seed("/dev/key" + i, ParameterType.STRING, "value-" + i);
+    }
+    MockProvider provider = new MockProvider(store, new ProviderOptions());
+    Path file = directory.resolve("dev.snap");
+    Assertions.assertTrue(provider.performCopy("/dev/", Snapshot.SCHEME + file, false, false));
+
+    // every frame is whole; only the end frame is missing
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 16);
+    }
+    Assertions.assertFalse(provider.performCopy(Snapshot.SCHEME + file, "/restored/", false, false));
+    Assertions.assertEquals(600, store.size());
+  }
+
+  private static List<Parameter> readAll(Path file, char[] passphrase) {
+    List<Parameter> parameters = new ArrayList<>();
+    try (SnapshotReader reader = SnapshotReader.open(file, passphrase)) {
+      Assertions.assertEquals("/app/", reader.getPrefix());
+      reader.forEach(parameters::add);
+    }
+    return parameters;
+  }
+
+  private static void overwriteInt(Path file, int position, int value) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, value), position);
+    }
+  }
+
+  private static Parameter parameter(String name, String value) {
+    return Parameter.builder().name(name).value(value).type(ParameterType.SECURE_STRING).dataType("text").build();
+  }
+}